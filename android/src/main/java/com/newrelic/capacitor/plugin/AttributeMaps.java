@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.capacitor.plugin;
+
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds the attribute maps handed to the agent on the event hot path. Attribute keys and event
+ * types are interned in a bounded table so repeated events share one String per key; free-form
+ * values such as event or breadcrumb names must not be interned, as they would fill the table. Maps
+ * are recycled through a small pool. recordCustomEvent and recordBreadcrumb copy the attributes
+ * into analytics attributes before returning, so a map given to them can be reused as soon as the
+ * call returns; APIs that keep the map, such as recordHandledException, must be given a copy.
+ */
+public class AttributeMaps {
+
+    static final int MAX_INTERNED = 1024;
+    static final int MAX_POOLED = 16;
+    static final int MAP_CAPACITY = 32;
+
+    private final Map<String, String> interned = new ConcurrentHashMap<>();
+    private final ArrayBlockingQueue<Map<String, Object>> pool = new ArrayBlockingQueue<>(MAX_POOLED);
+
+    /**
+     * Returns the canonical instance of the given attribute key or event type, or the string
+     * itself once the intern table is full.
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String canonical = interned.get(value);
+        if (canonical != null) {
+            return canonical;
+        }
+        if (interned.size() >= MAX_INTERNED) {
+            return value;
+        }
+        canonical = interned.putIfAbsent(value, value);
+        return canonical != null ? canonical : value;
+    }
+
+    public Map<String, Object> acquire() {
+        Map<String, Object> map = pool.poll();
+        return map != null ? map : new HashMap<>(MAP_CAPACITY);
+    }
+
+    /**
+     * Returns a map to the pool. The map must no longer be referenced by the caller.
+     */
+    public void release(Map<String, Object> map) {
+        if (map == null) {
+            return;
+        }
+        map.clear();
+        pool.offer(map);
+    }
+
+    /**
+     * Copies the primitive (string, number and boolean) members of a JS object into a pooled map.
+     * Nested objects, arrays and nulls are skipped, as the agent does not accept them.
+     */
+    public Map<String, Object> fromJSON(JSONObject json) {
+        return fromJSON(json, null);
+    }
+
+    /**
+     * Like {@link #fromJSON(JSONObject)}, keeping only the attributes selected by the projection
+     * rule, under their projected names. With an allowlist only the allowed keys are looked up.
+     */
+    public Map<String, Object> fromJSON(JSONObject json, AttributeProjection.Rule rule) {
+        Map<String, Object> map = acquire();
+        if (json == null) {
+            return map;
+        }
+
+        if (rule != null && rule.allow != null) {
+            for (String key : rule.allow) {
+                put(map, rule.project(key), json.opt(key));
+            }
+            return map;
+        }
+
+        Iterator<String> keys = json.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (rule == null) {
+                put(map, key, json.opt(key));
+            } else {
+                put(map, rule.project(key), json.opt(key));
+            }
+        }
+        return map;
+    }
+
+    private void put(Map<String, Object> map, String key, Object value) {
+        if (key != null && (value instanceof String || value instanceof Number || value instanceof Boolean)) {
+            map.put(intern(key), value);
+        }
+    }
+
+    int internedCount() {
+        return interned.size();
+    }
+}
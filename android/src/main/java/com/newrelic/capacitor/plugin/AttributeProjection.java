@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.capacitor.plugin;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per event type projection of the attributes given from JS: an allowlist or denylist of keys,
+ * and renames. Rules are applied by {@link AttributeMaps#fromJSON} while converting the JS object,
+ * so attributes that are projected out are never copied into the attribute map.
+ */
+public class AttributeProjection {
+
+    /**
+     * Keys are matched against the names given from JS, before renaming.
+     */
+    public static class Rule {
+        final String[] allow;
+        final Set<String> deny;
+        final Map<String, String> renames;
+
+        /**
+         * @param allow   keys to keep, or null to keep every key that is not denied
+         * @param deny    keys to drop
+         * @param renames names to report keys under
+         */
+        public Rule(String[] allow, Set<String> deny, Map<String, String> renames) {
+            this.allow = allow;
+            this.deny = deny != null ? deny : Collections.emptySet();
+            this.renames = renames != null ? renames : Collections.emptyMap();
+        }
+
+        /**
+         * Returns the name to report the key under, or null if the key is projected out.
+         */
+        public String project(String key) {
+            if (deny.contains(key)) {
+                return null;
+            }
+            String renamed = renames.get(key);
+            return renamed != null ? renamed : key;
+        }
+    }
+
+    private final Map<String, Rule> rules = new ConcurrentHashMap<>();
+
+    public void addRule(String eventType, Rule rule) {
+        rules.put(eventType, rule);
+    }
+
+    public void clearRules() {
+        rules.clear();
+    }
+
+    public boolean hasRules() {
+        return !rules.isEmpty();
+    }
+
+    /**
+     * Returns the rule of the event type, or null if its attributes are kept as given.
+     */
+    public Rule ruleFor(String eventType) {
+        return eventType != null ? rules.get(eventType) : null;
+    }
+}
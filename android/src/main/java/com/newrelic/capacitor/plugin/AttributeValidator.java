@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.capacitor.plugin;
+
+import com.newrelic.agent.android.stats.StatsEngine;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Pattern;
+
+/**
+ * Checks event attributes against the agent's limits before they are handed off, so that one bad
+ * attribute is trimmed or dropped on its own instead of surfacing as a rejected event. Each kind
+ * of violation is counted and reported as a supportability metric.
+ */
+public class AttributeValidator {
+
+    static final int MAX_NAME_LENGTH = 256;
+    // The agent requires values to be shorter than 4096 bytes
+    static final int MAX_VALUE_BYTES = 4095;
+    static final int MAX_ATTRIBUTES = 128;
+
+    public enum Violation {
+        RESERVED_NAME,
+        NAME_TOO_LONG,
+        NULL_VALUE,
+        VALUE_TRIMMED,
+        TOO_MANY_ATTRIBUTES,
+        INVALID_EVENT_TYPE
+    }
+
+    private static final Set<String> RESERVED_NAMES = new HashSet<>(Arrays.asList(
+            "eventType", "type", "timestamp", "category", "accountId", "appId", "appName", "uuid",
+            "sessionId", "sessionDuration", "osName", "osVersion", "osMajorVersion", "deviceManufacturer",
+            "deviceModel", "carrier", "newRelicVersion", "memUsageMb", "platform", "platformVersion",
+            "lastInteraction"));
+
+    private static final Pattern EVENT_TYPE = Pattern.compile("^[\\p{L}\\p{Nd} _:.]+$");
+
+    private static final Violation[] VIOLATIONS = Violation.values();
+
+    private final AtomicLongArray violations = new AtomicLongArray(VIOLATIONS.length);
+
+    /**
+     * Trims or removes the offending attributes of the map in place.
+     */
+    public void validate(Map<String, Object> attributes) {
+        int count = 0;
+        Iterator<Map.Entry<String, Object>> entries = attributes.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, Object> entry = entries.next();
+            String name = entry.getKey();
+            Object value = entry.getValue();
+
+            Violation violation = null;
+            if (name == null || isReserved(name)) {
+                violation = Violation.RESERVED_NAME;
+            } else if (name.length() > MAX_NAME_LENGTH) {
+                violation = Violation.NAME_TOO_LONG;
+            } else if (value == null) {
+                violation = Violation.NULL_VALUE;
+            } else if (count >= MAX_ATTRIBUTES) {
+                violation = Violation.TOO_MANY_ATTRIBUTES;
+            }
+
+            if (violation != null) {
+                entries.remove();
+                count(violation);
+                continue;
+            }
+
+            if (value instanceof String) {
+                String trimmed = HttpBodyCapturePolicy.truncateUtf8((String) value, MAX_VALUE_BYTES);
+                if (trimmed != value) {
+                    entry.setValue(trimmed);
+                    count(Violation.VALUE_TRIMMED);
+                }
+            }
+            count++;
+        }
+    }
+
+    public boolean isValidEventType(String eventType) {
+        if (eventType != null && eventType.length() <= MAX_NAME_LENGTH && EVENT_TYPE.matcher(eventType).matches()) {
+            return true;
+        }
+        count(Violation.INVALID_EVENT_TYPE);
+        return false;
+    }
+
+    public long getViolationCount(Violation violation) {
+        return violations.get(violation.ordinal());
+    }
+
+    static boolean isReserved(String name) {
+        return RESERVED_NAMES.contains(name) || name.startsWith("newRelic") || name.startsWith("nr.");
+    }
+
+    private void count(Violation violation) {
+        violations.incrementAndGet(violation.ordinal());
+        StatsEngine.get().inc("Supportability/Mobile/Capacitor/Attributes/" + violation.name());
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.capacitor.plugin;
+
+import com.newrelic.agent.android.stats.StatsEngine;
+
+/**
+ * Limits how much telemetry from JS is recorded while the app is in the background, where the
+ * WebView keeps running timers. Each category gets a budget of calls per minute; calls past it are
+ * dropped and counted. In the foreground, or when disabled, every call is allowed.
+ */
+public class BackgroundThrottle {
+
+    static final long WINDOW_MS = 60_000;
+
+    public enum Category {
+        CONSOLE(0),
+        EVENT(30),
+        BREADCRUMB(30),
+        METRIC(60),
+        NETWORK(60);
+
+        final int defaultRatePerMinute;
+
+        Category(int defaultRatePerMinute) {
+            this.defaultRatePerMinute = defaultRatePerMinute;
+        }
+    }
+
+    private final int[] ratesPerMinute = new int[Category.values().length];
+    private final int[] counts = new int[Category.values().length];
+    private final long[] windowStarts = new long[Category.values().length];
+    private final long[] dropped = new long[Category.values().length];
+    private volatile boolean enabled;
+    private volatile boolean background;
+
+    public BackgroundThrottle() {
+        for (Category category : Category.values()) {
+            ratesPerMinute[category.ordinal()] = category.defaultRatePerMinute;
+        }
+    }
+
+    /**
+     * Disabling while in the background stops throttling right away, reporting what was dropped,
+     * rather than on the next foreground.
+     */
+    public synchronized void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            enterForeground();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isBackground() {
+        return background;
+    }
+
+    public synchronized void setRate(Category category, int ratePerMinute) {
+        ratesPerMinute[category.ordinal()] = Math.max(0, ratePerMinute);
+    }
+
+    public synchronized int getRate(Category category) {
+        return ratesPerMinute[category.ordinal()];
+    }
+
+    public synchronized long getDroppedCount(Category category) {
+        return dropped[category.ordinal()];
+    }
+
+    /**
+     * Starts throttling. Returns false if throttling is disabled, or the app was already in the
+     * background.
+     */
+    public synchronized boolean enterBackground(long now) {
+        if (!enabled || background) {
+            return false;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+            windowStarts[i] = now;
+        }
+        background = true;
+        return true;
+    }
+
+    /**
+     * Stops throttling, reporting how many calls of each category were dropped in the background.
+     */
+    public synchronized void enterForeground() {
+        if (!background) {
+            return;
+        }
+        background = false;
+        for (Category category : Category.values()) {
+            long count = dropped[category.ordinal()];
+            if (count > 0) {
+                StatsEngine.get().inc("Supportability/Mobile/Capacitor/Background/" + category.name() + "/Dropped", count);
+                dropped[category.ordinal()] = 0;
+            }
+        }
+    }
+
+    /**
+     * Returns whether a call of the given category should be recorded.
+     */
+    public boolean allow(Category category) {
+        return !background || allow(category, System.currentTimeMillis());
+    }
+
+    public synchronized boolean allow(Category category, long now) {
+        if (!background) {
+            return true;
+        }
+        int index = category.ordinal();
+        if (now - windowStarts[index] >= WINDOW_MS) {
+            windowStarts[index] = now;
+            counts[index] = 0;
+        }
+        if (counts[index] < ratesPerMinute[index]) {
+            counts[index]++;
+            return true;
+        }
+        dropped[index]++;
+        return false;
+    }
+}
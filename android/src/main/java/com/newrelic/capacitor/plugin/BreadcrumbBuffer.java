@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.capacitor.plugin;
+
+import com.newrelic.agent.android.NewRelic;
+
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Keeps the most recent breadcrumbs on the device instead of sending each one to the agent. They
+ * are only emitted when an error or crash is recorded, either one breadcrumb per buffered entry or
+ * as a single compact breadcrumb holding them all as JSON.
+ * <p>
+ * Slots are allocated up front and overwritten in place, so buffering a breadcrumb only copies
+ * references to the already converted name, keys and values.
+ */
+public class BreadcrumbBuffer {
+
+    static final int MAX_ATTRIBUTES_PER_BREADCRUMB = 32;
+    static final String COMPACT_NAME = "Breadcrumbs";
+    static final String TIMESTAMP_ATTRIBUTE = "breadcrumbTimestamp";
+
+    /**
+     * Receives the breadcrumbs when the buffer is flushed.
+     */
+    public interface Emitter {
+        void emit(String name, Map<String, Object> attributes);
+    }
+
+    private static class Slot {
+        String name;
+        long timestamp;
+        final String[] keys = new String[MAX_ATTRIBUTES_PER_BREADCRUMB];
+        final Object[] values = new Object[MAX_ATTRIBUTES_PER_BREADCRUMB];
+        int count;
+    }
+
+    /**
+     * Copies attributes into a slot. HashMap.forEach walks the table directly, unlike an entry
+     * set iterator, and the copier itself is reused.
+     */
+    private static class Copier implements BiConsumer<String, Object> {
+        Slot slot;
+        int count;
+
+        @Override
+        public void accept(String key, Object value) {
+            if (count < MAX_ATTRIBUTES_PER_BREADCRUMB) {
+                slot.keys[count] = key;
+                slot.values[count] = value;
+                count++;
+            }
+        }
+    }
+
+    private final Copier copier = new Copier();
+    private final Slot[] slots;
+    private final boolean compact;
+    private final Emitter emitter;
+    private int next;
+    private int size;
+    private long overwritten;
+
+    public BreadcrumbBuffer(int capacity, boolean compact) {
+        this(capacity, compact, NewRelic::recordBreadcrumb);
+    }
+
+    public BreadcrumbBuffer(int capacity, boolean compact, Emitter emitter) {
+        this.slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+        }
+        this.compact = compact;
+        this.emitter = emitter;
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Buffers a breadcrumb, overwriting the oldest one once full. The attribute map is not kept.
+     */
+    public synchronized void add(String name, Map<String, Object> attributes, long timestamp) {
+        if (slots.length == 0) {
+            return;
+        }
+
+        Slot slot = slots[next];
+        if (size == slots.length) {
+            overwritten++;
+        } else {
+            size++;
+        }
+        next = (next + 1) % slots.length;
+
+        slot.name = name;
+        slot.timestamp = timestamp;
+        copier.slot = slot;
+        copier.count = 0;
+        if (attributes != null) {
+            attributes.forEach(copier);
+        }
+        int count = copier.count;
+        copier.slot = null;
+        for (int i = count; i < slot.count; i++) {
+            slot.keys[i] = null;
+            slot.values[i] = null;
+        }
+        slot.count = count;
+    }
+
+    /**
+     * Emits the buffered breadcrumbs, oldest first, and empties the buffer. Returns how many were
+     * emitted.
+     */
+    public synchronized int flush() {
+        if (size == 0) {
+            return 0;
+        }
+
+        int oldest = (next - size + slots.length) % slots.length;
+        if (compact) {
+            emitCompact(oldest);
+        } else {
+            for (int i = 0; i < size; i++) {
+                Slot slot = slots[(oldest + i) % slots.length];
+                Map<String, Object> attributes = toMap(slot);
+                attributes.put(TIMESTAMP_ATTRIBUTE, slot.timestamp);
+                emitter.emit(slot.name, attributes);
+            }
+        }
+
+        int emitted = size;
+        for (Slot slot : slots) {
+            slot.name = null;
+            for (int i = 0; i < slot.count; i++) {
+                slot.keys[i] = null;
+                slot.values[i] = null;
+            }
+            slot.count = 0;
+        }
+        size = 0;
+        overwritten = 0;
+        return emitted;
+    }
+
+    private void emitCompact(int oldest) {
+        // Keep the newest breadcrumbs that fit in one attribute value
+        List<String> entries = new ArrayList<>();
+        int bytes = 2;
+        for (int i = size - 1; i >= 0; i--) {
+            Slot slot = slots[(oldest + i) % slots.length];
+            JSONObject entry = new JSONObject();
+            try {
+                entry.put("name", slot.name);
+                entry.put("timestamp", slot.timestamp);
+                entry.put("attributes", new JSONObject(toMap(slot)));
+            } catch (Exception e) {
+                continue;
+            }
+            String json = entry.toString();
+            int entryBytes = json.getBytes(StandardCharsets.UTF_8).length + 1;
+            if (bytes + entryBytes > AttributeValidator.MAX_VALUE_BYTES) {
+                break;
+            }
+            bytes += entryBytes;
+            entries.add(json);
+        }
+
+        StringBuilder breadcrumbs = new StringBuilder(bytes).append('[');
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            breadcrumbs.append(entries.get(i));
+            if (i > 0) {
+                breadcrumbs.append(',');
+            }
+        }
+        breadcrumbs.append(']');
+
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("breadcrumbs", breadcrumbs.toString());
+        attributes.put("breadcrumbCount", entries.size());
+        attributes.put("droppedBreadcrumbs", overwritten + size - entries.size());
+        emitter.emit(COMPACT_NAME, attributes);
+    }
+
+    private static Map<String, Object> toMap(Slot slot) {
+        Map<String, Object> attributes = new HashMap<>();
+        for (int i = 0; i < slot.count; i++) {
+            attributes.put(slot.keys[i], slot.values[i]);
+        }
+        return attributes;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.capacitor.plugin;
+
+import com.getcapacitor.PluginCall;
+import com.newrelic.agent.android.NewRelic;
+import com.newrelic.agent.android.metric.MetricUnit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long plugin calls wait in the Capacitor bridge (JS send time to native receipt)
+ * and how long the native side takes to handle them. Calls opt in by carrying a {@code sentAt}
+ * epoch timestamp in milliseconds. Timings are kept in per-method histograms and reported as
+ * metrics once per interval.
+ */
+public class BridgeLatencyProbe {
+
+    static final String SENT_AT = "sentAt";
+    static final String METRIC_CATEGORY = "CapacitorBridge";
+    static final long REPORT_INTERVAL_SECONDS = 60;
+
+    static final long MIN_PING_INTERVAL_MS = 5_000;
+    static final long BASE_PING_INTERVAL_MS = 30_000;
+    static final long MAX_PING_INTERVAL_MS = 120_000;
+    static final long CONGESTED_QUEUE_DELAY_MS = 250;
+    static final long BUSY_SAMPLE_COUNT = 10;
+
+    private final Map<String, Histogram> queueDelays = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> handlingTimes = new ConcurrentHashMap<>();
+
+    private volatile boolean enabled;
+    private volatile long lastPingQueueDelay;
+    private ScheduledFuture<?> reporter;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized void start(ScheduledExecutorService scheduler) {
+        enabled = true;
+        if (reporter == null) {
+            reporter = scheduler.scheduleWithFixedDelay(this::report,
+                    REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        enabled = false;
+        if (reporter != null) {
+            reporter.cancel(false);
+            reporter = null;
+        }
+    }
+
+    /**
+     * Called when a plugin call reaches native code. Returns the handling start time to pass to
+     * {@link #handled(PluginCall, long)}, or 0 when the probe is disabled.
+     */
+    public long received(PluginCall call) {
+        if (!enabled) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        Long sentAt = call.getLong(SENT_AT);
+        if (sentAt != null) {
+            long queueDelay = Math.max(0, System.currentTimeMillis() - sentAt);
+            histogram(queueDelays, call).record(queueDelay);
+            if ("ping".equals(call.getMethodName())) {
+                lastPingQueueDelay = queueDelay;
+            }
+        }
+        return start;
+    }
+
+    public void handled(PluginCall call, long start) {
+        if (start == 0) {
+            return;
+        }
+        histogram(handlingTimes, call).record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    }
+
+    /**
+     * Suggested delay before the next synthetic ping. Pings back off while real calls are
+     * already carrying timestamps, and speed up when the last ping saw a congested bridge.
+     */
+    public long nextPingInterval() {
+        if (!enabled) {
+            return 0;
+        }
+        if (lastPingQueueDelay >= CONGESTED_QUEUE_DELAY_MS) {
+            return MIN_PING_INTERVAL_MS;
+        }
+
+        long samples = 0;
+        for (Map.Entry<String, Histogram> entry : queueDelays.entrySet()) {
+            if (!"ping".equals(entry.getKey())) {
+                samples += entry.getValue().count();
+            }
+        }
+        return samples >= BUSY_SAMPLE_COUNT ? MAX_PING_INTERVAL_MS : BASE_PING_INTERVAL_MS;
+    }
+
+    void report() {
+        for (Map.Entry<String, Histogram> entry : queueDelays.entrySet()) {
+            // Queue delays are recorded in milliseconds
+            reportSnapshot(entry.getKey() + "/QueueDelay", entry.getValue().drain(), 1000.0);
+        }
+        for (Map.Entry<String, Histogram> entry : handlingTimes.entrySet()) {
+            // Handling times are recorded in microseconds
+            reportSnapshot(entry.getKey() + "/HandlingTime", entry.getValue().drain(), 1_000_000.0);
+        }
+    }
+
+    private static void reportSnapshot(String name, Histogram.Snapshot snapshot, double unitsPerSecond) {
+        if (snapshot.count == 0) {
+            return;
+        }
+        double total = snapshot.sum / unitsPerSecond;
+        NewRelic.recordMetric(name, METRIC_CATEGORY, (int) snapshot.count, total, total,
+                MetricUnit.OPERATIONS, MetricUnit.SECONDS);
+        NewRelic.recordMetric(name + "/p95", METRIC_CATEGORY, snapshot.quantile(0.95) / unitsPerSecond);
+        NewRelic.recordMetric(name + "/Max", METRIC_CATEGORY, snapshot.max / unitsPerSecond);
+    }
+
+    private static Histogram histogram(Map<String, Histogram> histograms, PluginCall call) {
+        String method = call.getMethodName();
+        if (method == null) {
+            method = "unknown";
+        }
+        Histogram histogram = histograms.get(method);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(method, key -> new Histogram());
+        }
+        return histogram;
+    }
+}
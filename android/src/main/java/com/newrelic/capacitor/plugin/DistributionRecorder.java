@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.capacitor.plugin;
+
+import com.newrelic.agent.android.NewRelic;
+import com.newrelic.agent.android.metric.MetricUnit;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps one {@link QuantileSketch} per distribution (category and name) and reports a compact
+ * summary of each one per harvest interval, instead of one metric per recorded value. The number
+ * of distributions is capped, and each sketch has a bounded number of bins.
+ */
+public class DistributionRecorder {
+
+    static final int MAX_DISTRIBUTIONS = 200;
+    static final long REPORT_INTERVAL_SECONDS = 60;
+    static final String EVENT_TYPE = "Distribution";
+
+    public enum Reporting {
+        METRICS,
+        EVENTS
+    }
+
+    public static class Summary {
+        public final String category;
+        public final String name;
+        public final MetricUnit valueUnit;
+        public final long count;
+        public final double sum;
+        public final double p50;
+        public final double p90;
+        public final double p99;
+        public final double max;
+
+        Summary(String category, String name, MetricUnit valueUnit, QuantileSketch sketch) {
+            this.category = category;
+            this.name = name;
+            this.valueUnit = valueUnit;
+            this.count = sketch.getCount();
+            this.sum = sketch.getSum();
+            this.p50 = sketch.quantile(0.5);
+            this.p90 = sketch.quantile(0.9);
+            this.p99 = sketch.quantile(0.99);
+            this.max = sketch.getMax();
+        }
+    }
+
+    /**
+     * Receives one summary per distribution at the end of each interval.
+     */
+    public interface Reporter {
+        void report(Summary summary, Reporting reporting);
+    }
+
+    private static class Distribution {
+        final String category;
+        final String name;
+        final MetricUnit valueUnit;
+        final QuantileSketch sketch = new QuantileSketch();
+
+        Distribution(String category, String name, MetricUnit valueUnit) {
+            this.category = category;
+            this.name = name;
+            this.valueUnit = valueUnit;
+        }
+    }
+
+    private final Map<String, Distribution> distributions = new ConcurrentHashMap<>();
+    private final Reporter reporter;
+    private volatile Reporting reporting = Reporting.METRICS;
+    private long rejected;
+    private ScheduledFuture<?> ticker;
+
+    public DistributionRecorder() {
+        this(new AgentReporter());
+    }
+
+    public DistributionRecorder(Reporter reporter) {
+        this.reporter = reporter;
+    }
+
+    public void setReporting(Reporting reporting) {
+        this.reporting = reporting;
+    }
+
+    public Reporting getReporting() {
+        return reporting;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejected;
+    }
+
+    public synchronized void start(ScheduledExecutorService scheduler) {
+        if (ticker == null) {
+            ticker = scheduler.scheduleWithFixedDelay(this::flush,
+                    REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (ticker != null) {
+            ticker.cancel(false);
+            ticker = null;
+        }
+    }
+
+    /**
+     * Adds a value to a distribution. Returns false if the distribution is new and the cap on
+     * distributions has been reached. The value unit is the one given when the distribution was
+     * first recorded.
+     */
+    public boolean record(String category, String name, double value, MetricUnit valueUnit) {
+        String key = category + "/" + name;
+        Distribution distribution = distributions.get(key);
+        if (distribution == null) {
+            synchronized (this) {
+                distribution = distributions.get(key);
+                if (distribution == null) {
+                    if (distributions.size() >= MAX_DISTRIBUTIONS) {
+                        rejected++;
+                        return false;
+                    }
+                    distribution = new Distribution(category, name,
+                            valueUnit != null ? valueUnit : MetricUnit.OPERATIONS);
+                    distributions.put(key, distribution);
+                }
+            }
+        }
+        synchronized (distribution) {
+            distribution.sketch.add(value);
+        }
+        return true;
+    }
+
+    /**
+     * Reports and clears every distribution that received values in the current interval.
+     */
+    public void flush() {
+        for (Distribution distribution : distributions.values()) {
+            Summary summary = null;
+            synchronized (distribution) {
+                if (distribution.sketch.getCount() > 0) {
+                    summary = new Summary(distribution.category, distribution.name,
+                            distribution.valueUnit, distribution.sketch);
+                    distribution.sketch.clear();
+                }
+            }
+            if (summary != null) {
+                reporter.report(summary, reporting);
+            }
+        }
+    }
+
+    static class AgentReporter implements Reporter {
+        @Override
+        public void report(Summary summary, Reporting reporting) {
+            if (reporting == Reporting.EVENTS) {
+                Map<String, Object> attributes = new HashMap<>();
+                attributes.put("metricCategory", summary.category);
+                attributes.put("count", summary.count);
+                attributes.put("sum", summary.sum);
+                attributes.put("p50", summary.p50);
+                attributes.put("p90", summary.p90);
+                attributes.put("p99", summary.p99);
+                attributes.put("max", summary.max);
+                NewRelic.recordCustomEvent(EVENT_TYPE, summary.name, attributes);
+                return;
+            }
+
+            NewRelic.recordMetric(summary.name, summary.category, (int) summary.count, summary.sum, summary.sum,
+                    MetricUnit.OPERATIONS, summary.valueUnit);
+            NewRelic.recordMetric(summary.name + "/p50", summary.category, summary.p50);
+            NewRelic.recordMetric(summary.name + "/p90", summary.category, summary.p90);
+            NewRelic.recordMetric(summary.name + "/p99", summary.category, summary.p99);
+            NewRelic.recordMetric(summary.name + "/Max", summary.category, summary.max);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.capacitor.plugin;
+
+import com.newrelic.agent.android.NewRelic;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregates high-frequency custom events natively. For an event type in rollup mode, each
+ * recordCustomEvent call only updates the summary of its dimension tuple (the values of the
+ * configured attributes): a count, and the sum, min and max of every other numeric attribute.
+ * One summary event per tuple is emitted at the end of each window, with the same event type.
+ * Summaries carry three attributes per numeric attribute, so they are validated again before
+ * being emitted; the dimensions and count come first and are kept when attributes are dropped.
+ */
+public class EventRollup {
+
+    static final long DEFAULT_WINDOW_SECONDS = 60;
+    static final int MAX_TUPLES_PER_WINDOW = 1000;
+    static final String OVERFLOW_VALUE = "other";
+    static final String SUMMARY_NAME = "Rollup";
+
+    /**
+     * Receives the summary events at the end of each window.
+     */
+    public interface Emitter {
+        void emit(String eventType, String name, Map<String, Object> attributes);
+    }
+
+    static class Rule {
+        final String[] dimensions;
+        final long windowMs;
+        Map<DimensionKey, Summary> summaries = new HashMap<>();
+        long windowStart;
+
+        Rule(String[] dimensions, long windowMs) {
+            this.dimensions = dimensions;
+            this.windowMs = windowMs;
+        }
+    }
+
+    static class DimensionKey {
+        final Object[] values;
+        final int hash;
+
+        DimensionKey(Object[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof DimensionKey && Arrays.equals(values, ((DimensionKey) other).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    static class Summary {
+        long count;
+        final Map<String, double[]> numbers = new LinkedHashMap<>();
+
+        void add(String name, double value) {
+            double[] stats = numbers.get(name);
+            if (stats == null) {
+                numbers.put(name, new double[]{value, value, value});
+            } else {
+                stats[0] += value;
+                stats[1] = Math.min(stats[1], value);
+                stats[2] = Math.max(stats[2], value);
+            }
+        }
+    }
+
+    private final Map<String, Rule> rules = new HashMap<>();
+    private final Emitter emitter;
+    private final AttributeValidator validator;
+    private ScheduledFuture<?> ticker;
+
+    public EventRollup(AttributeValidator validator) {
+        this(NewRelic::recordCustomEvent, validator);
+    }
+
+    public EventRollup(Emitter emitter, AttributeValidator validator) {
+        this.emitter = emitter;
+        this.validator = validator;
+    }
+
+    /**
+     * Puts an event type in rollup mode. Pending summaries of a previous rule are emitted first.
+     */
+    public synchronized void addRule(String eventType, String[] dimensions, long windowSeconds) {
+        Rule previous = rules.get(eventType);
+        if (previous != null) {
+            emit(eventType, previous);
+        }
+        Rule rule = new Rule(dimensions, TimeUnit.SECONDS.toMillis(windowSeconds > 0 ? windowSeconds : DEFAULT_WINDOW_SECONDS));
+        rule.windowStart = System.currentTimeMillis();
+        rules.put(eventType, rule);
+    }
+
+    public synchronized void clearRules() {
+        flush();
+        rules.clear();
+    }
+
+    public synchronized boolean hasRules() {
+        return !rules.isEmpty();
+    }
+
+    public synchronized void start(ScheduledExecutorService scheduler) {
+        if (ticker == null) {
+            ticker = scheduler.scheduleWithFixedDelay(this::tick, 1, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (ticker != null) {
+            ticker.cancel(false);
+            ticker = null;
+        }
+    }
+
+    /**
+     * Adds the event to its summary. Returns false if the event type is not in rollup mode, in
+     * which case the caller should record the event itself.
+     */
+    public synchronized boolean record(String eventType, Map<String, Object> attributes) {
+        Rule rule = rules.get(eventType);
+        if (rule == null) {
+            return false;
+        }
+
+        Object[] values = new Object[rule.dimensions.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = attributes.get(rule.dimensions[i]);
+        }
+        DimensionKey key = new DimensionKey(values);
+
+        Summary summary = rule.summaries.get(key);
+        if (summary == null) {
+            if (rule.summaries.size() >= MAX_TUPLES_PER_WINDOW) {
+                Object[] overflow = new Object[values.length];
+                Arrays.fill(overflow, OVERFLOW_VALUE);
+                key = new DimensionKey(overflow);
+                summary = rule.summaries.get(key);
+            }
+            if (summary == null) {
+                summary = new Summary();
+                rule.summaries.put(key, summary);
+            }
+        }
+
+        summary.count++;
+        for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+            if (attribute.getValue() instanceof Number && !isDimension(rule, attribute.getKey())) {
+                summary.add(attribute.getKey(), ((Number) attribute.getValue()).doubleValue());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Emits the summaries of every open window.
+     */
+    public synchronized void flush() {
+        for (Map.Entry<String, Rule> entry : rules.entrySet()) {
+            emit(entry.getKey(), entry.getValue());
+        }
+    }
+
+    synchronized void tick() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Rule> entry : rules.entrySet()) {
+            Rule rule = entry.getValue();
+            if (now - rule.windowStart >= rule.windowMs) {
+                emit(entry.getKey(), rule);
+            }
+        }
+    }
+
+    private void emit(String eventType, Rule rule) {
+        long windowSeconds = TimeUnit.MILLISECONDS.toSeconds(rule.windowMs);
+        for (Map.Entry<DimensionKey, Summary> entry : rule.summaries.entrySet()) {
+            Summary summary = entry.getValue();
+            Map<String, Object> attributes = new LinkedHashMap<>();
+            Object[] values = entry.getKey().values;
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    attributes.put(rule.dimensions[i], values[i]);
+                }
+            }
+            attributes.put("count", summary.count);
+            attributes.put("rollupWindowSeconds", windowSeconds);
+            for (Map.Entry<String, double[]> number : summary.numbers.entrySet()) {
+                double[] stats = number.getValue();
+                attributes.put(number.getKey() + ".sum", stats[0]);
+                attributes.put(number.getKey() + ".min", stats[1]);
+                attributes.put(number.getKey() + ".max", stats[2]);
+            }
+            validator.validate(attributes);
+            emitter.emit(eventType, SUMMARY_NAME, attributes);
+        }
+        rule.summaries = new HashMap<>();
+        rule.windowStart = System.currentTimeMillis();
+    }
+
+    private static boolean isDimension(Rule rule, String name) {
+        for (String dimension : rule.dimensions) {
+            if (dimension.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.capacitor.plugin;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import com.newrelic.agent.android.NewRelic;
+import com.newrelic.agent.android.metric.MetricUnit;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures frame durations of the UI thread, which renders the WebView, with Choreographer frame
+ * callbacks. Durations are counted in refresh periods of the display, so a frame that takes two or
+ * more vsyncs is janky whatever the refresh rate. Each frame only updates a fixed-bucket histogram
+ * and the jank and frozen counters of the current scope, the interaction in progress if any.
+ * Aggregated frame metrics are reported once per interval.
+ */
+public class FrameMonitor implements Choreographer.FrameCallback {
+
+    static final String METRIC_CATEGORY = "Frames";
+    static final String DEFAULT_SCOPE = "App";
+    static final String OVERFLOW_SCOPE = "Other";
+    static final int MAX_SCOPES = 50;
+    static final long REPORT_INTERVAL_SECONDS = 60;
+
+    static final long DEFAULT_REFRESH_PERIOD_NANOS = 1_000_000_000L / 60;
+
+    // A frame is janky once it misses a vsync, frozen past the Android vitals threshold
+    static final int JANK_PERIODS = 2;
+    static final long FROZEN_NANOS = TimeUnit.MILLISECONDS.toNanos(700);
+
+    // Upper bounds of the histogram buckets in refresh periods, the last bucket is unbounded
+    static final int[] BUCKET_BOUNDS_PERIODS = {1, 2, 3, 4, 6, 8, 12, 16, 24, 32, 48, 64};
+
+    /**
+     * Receives the aggregated frames of a scope at the end of each interval.
+     */
+    public interface Reporter {
+        void report(String scope, long frames, double totalSeconds, long jank, long frozen, double p95Seconds);
+    }
+
+    static class Scope {
+        final String name;
+        final long[] buckets = new long[BUCKET_BOUNDS_PERIODS.length + 1];
+        long frames;
+        long totalNanos;
+        long jank;
+        long frozen;
+
+        Scope(String name) {
+            this.name = name;
+        }
+
+        void record(long durationNanos, long refreshPeriodNanos) {
+            // Vsync timestamps jitter, round to the nearest number of periods
+            long periods = Math.max(1, (durationNanos + refreshPeriodNanos / 2) / refreshPeriodNanos);
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_PERIODS.length && periods > BUCKET_BOUNDS_PERIODS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket]++;
+            frames++;
+            totalNanos += durationNanos;
+            if (durationNanos > FROZEN_NANOS) {
+                frozen++;
+            } else if (periods >= JANK_PERIODS) {
+                jank++;
+            }
+        }
+
+        /**
+         * Upper bound, in refresh periods, of the bucket holding the given quantile. The last
+         * bucket counts as twice the highest bound.
+         */
+        long quantilePeriods(double quantile) {
+            long rank = (long) Math.ceil(quantile * frames);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return i < BUCKET_BOUNDS_PERIODS.length ? BUCKET_BOUNDS_PERIODS[i] : BUCKET_BOUNDS_PERIODS[i - 1] * 2L;
+                }
+            }
+            return 0;
+        }
+
+        void reset() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = 0;
+            }
+            frames = 0;
+            totalNanos = 0;
+            jank = 0;
+            frozen = 0;
+        }
+    }
+
+    private final Reporter reporter;
+    private final Map<String, Scope> scopes = new HashMap<>();
+    private Scope scope;
+    private String scopeId;
+    private long lastFrameNanos;
+    private long refreshPeriodNanos = DEFAULT_REFRESH_PERIOD_NANOS;
+    private boolean running;
+    private boolean paused;
+    private Handler mainHandler;
+    private ScheduledFuture<?> ticker;
+
+    public FrameMonitor() {
+        this(new AgentReporter());
+    }
+
+    public FrameMonitor(Reporter reporter) {
+        this.reporter = reporter;
+        this.scope = new Scope(DEFAULT_SCOPE);
+        scopes.put(DEFAULT_SCOPE, scope);
+    }
+
+    /**
+     * Sets the refresh rate of the display frames are rendered on, 60Hz by default.
+     */
+    public synchronized void setRefreshRate(float hertz) {
+        if (hertz > 0) {
+            refreshPeriodNanos = (long) (1_000_000_000L / hertz);
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    public synchronized void start(ScheduledExecutorService scheduler) {
+        if (running) {
+            return;
+        }
+        running = true;
+        lastFrameNanos = 0;
+        ticker = scheduler.scheduleWithFixedDelay(this::flush,
+                REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        postFrameCallback();
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        ticker.cancel(false);
+        ticker = null;
+        flush();
+    }
+
+    /**
+     * No frames are rendered in the background, the gap must not count as a frozen frame.
+     */
+    public synchronized void pause() {
+        paused = true;
+    }
+
+    public synchronized void resume() {
+        paused = false;
+        lastFrameNanos = 0;
+        if (running) {
+            postFrameCallback();
+        }
+    }
+
+    /**
+     * Attributes the following frames to the named scope until {@link #exitScope(String)} is
+     * called with the same id.
+     */
+    public synchronized void enterScope(String id, String name) {
+        Scope next = scopes.get(name);
+        if (next == null) {
+            if (scopes.size() >= MAX_SCOPES) {
+                name = OVERFLOW_SCOPE;
+                next = scopes.get(name);
+            }
+            if (next == null) {
+                next = new Scope(name);
+                scopes.put(name, next);
+            }
+        }
+        scope = next;
+        scopeId = id;
+    }
+
+    public synchronized void exitScope(String id) {
+        if (id != null && id.equals(scopeId)) {
+            scope = scopes.get(DEFAULT_SCOPE);
+            scopeId = null;
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (record(frameTimeNanos)) {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Records the frame that started at the given vsync time. Returns false once frames should no
+     * longer be observed.
+     */
+    public synchronized boolean record(long frameTimeNanos) {
+        if (paused) {
+            return false;
+        }
+        if (lastFrameNanos != 0 && frameTimeNanos > lastFrameNanos) {
+            scope.record(frameTimeNanos - lastFrameNanos, refreshPeriodNanos);
+        }
+        lastFrameNanos = frameTimeNanos;
+        return running;
+    }
+
+    public synchronized void flush() {
+        for (Scope each : scopes.values()) {
+            if (each.frames > 0) {
+                reporter.report(each.name, each.frames, each.totalNanos / 1e9, each.jank, each.frozen,
+                        each.quantilePeriods(0.95) * refreshPeriodNanos / 1e9);
+                each.reset();
+            }
+        }
+    }
+
+    private void postFrameCallback() {
+        // Choreographer is per thread, frames are measured on the main thread
+        if (mainHandler == null) {
+            mainHandler = new Handler(Looper.getMainLooper());
+        }
+        mainHandler.post(() -> {
+            Choreographer.getInstance().removeFrameCallback(this);
+            Choreographer.getInstance().postFrameCallback(this);
+        });
+    }
+
+    static class AgentReporter implements Reporter {
+        @Override
+        public void report(String scope, long frames, double totalSeconds, long jank, long frozen, double p95Seconds) {
+            NewRelic.recordMetric(scope, METRIC_CATEGORY, (int) frames, totalSeconds, totalSeconds,
+                    MetricUnit.OPERATIONS, MetricUnit.SECONDS);
+            NewRelic.recordMetric(scope + "/Jank", METRIC_CATEGORY, jank);
+            NewRelic.recordMetric(scope + "/Frozen", METRIC_CATEGORY, frozen);
+            NewRelic.recordMetric(scope + "/p95", METRIC_CATEGORY, p95Seconds);
+        }
+    }
+}
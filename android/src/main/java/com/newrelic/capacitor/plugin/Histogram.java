@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.capacitor.plugin;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values with power-of-two buckets. Recording never
+ * allocates; {@link #drain()} takes a snapshot and resets the histogram for the next interval.
+ */
+class Histogram {
+
+    static final int BUCKETS = 40;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+
+        long currentMax;
+        do {
+            currentMax = max.get();
+        } while (value > currentMax && !max.compareAndSet(currentMax, value));
+    }
+
+    long count() {
+        return count.get();
+    }
+
+    Snapshot drain() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.getAndSet(i, 0);
+        }
+        return new Snapshot(counts, count.getAndSet(0), sum.getAndSet(0), max.getAndSet(0));
+    }
+
+    static int bucketOf(long value) {
+        // Bucket i holds values in [2^(i-1), 2^i), bucket 0 holds 0
+        int bucket = 64 - Long.numberOfLeadingZeros(value);
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    static long upperBoundOf(int bucket) {
+        return bucket == 0 ? 0 : (1L << bucket) - 1;
+    }
+
+    static class Snapshot {
+        final long[] buckets;
+        final long count;
+        final long sum;
+        final long max;
+
+        Snapshot(long[] buckets, long count, long sum, long max) {
+            this.buckets = buckets;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Upper bound of the bucket holding the given quantile, capped at the observed max.
+         */
+        long quantile(double q) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(q * count);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(upperBoundOf(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.capacitor.plugin;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Decides how much of an HTTP response body given to noticeHttpTransaction is handed to the
+ * agent. Bodies can be limited to error responses, truncated to a maximum number of UTF-8 bytes
+ * (never splitting a character), or replaced by a SHA-256 hash of their content.
+ */
+public class HttpBodyCapturePolicy {
+
+    static final int DEFAULT_MAX_BYTES = 4096;
+
+    private volatile boolean enabled = true;
+    private volatile int maxBytes = DEFAULT_MAX_BYTES;
+    private volatile boolean errorsOnly = true;
+    private volatile boolean hashEnabled = false;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Maximum UTF-8 length of a captured body, 0 for no limit.
+     */
+    public void setMaxBytes(int maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    public boolean isErrorsOnly() {
+        return errorsOnly;
+    }
+
+    public void setErrorsOnly(boolean errorsOnly) {
+        this.errorsOnly = errorsOnly;
+    }
+
+    public boolean isHashEnabled() {
+        return hashEnabled;
+    }
+
+    public void setHashEnabled(boolean hashEnabled) {
+        this.hashEnabled = hashEnabled;
+    }
+
+    /**
+     * Returns the body to hand to the agent for a response with the given status, or null.
+     */
+    public String apply(int status, String body) {
+        if (body == null || !enabled || (errorsOnly && status < 400)) {
+            return null;
+        }
+        if (hashEnabled) {
+            return hash(body);
+        }
+        return maxBytes > 0 ? truncateUtf8(body, maxBytes) : body;
+    }
+
+    /**
+     * Longest prefix of value whose UTF-8 encoding fits in maxBytes, without encoding the string.
+     */
+    static String truncateUtf8(String value, int maxBytes) {
+        if (value.length() * 3 <= maxBytes) {
+            return value;
+        }
+
+        int bytes = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            int charBytes;
+            int charCount = 1;
+            if (c < 0x80) {
+                charBytes = 1;
+            } else if (c < 0x800) {
+                charBytes = 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                charBytes = 4;
+                charCount = 2;
+            } else {
+                charBytes = 3;
+            }
+
+            if (bytes + charBytes > maxBytes) {
+                return value.substring(0, i);
+            }
+            bytes += charBytes;
+            i += charCount - 1;
+        }
+        return value;
+    }
+
+    static String hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder("sha256:");
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+}
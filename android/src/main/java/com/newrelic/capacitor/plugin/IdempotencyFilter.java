@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.capacitor.plugin;
+
+import java.util.Arrays;
+
+/**
+ * Remembers recently seen idempotency keys, so calls retried by JS after a reload are only
+ * recorded once. Keys are kept in two Bloom filter generations of fixed size: new keys go into the
+ * current generation, and when it is full or older than the window the previous one is dropped.
+ * A key is remembered for at least one window or capacity worth of newer keys, memory does not grow
+ * with the session, and a small fraction of never seen keys are reported as duplicates.
+ */
+public class IdempotencyFilter {
+
+    static final int DEFAULT_CAPACITY = 10_000;
+    static final long DEFAULT_WINDOW_MS = 10 * 60 * 1000;
+
+    // About 0.1% false positives per generation at capacity. At the default capacity each
+    // generation is 150,000 bits (18,750 bytes), and with two generations live the filter holds
+    // about 37.5KB
+    static final int BITS_PER_KEY = 15;
+    static final int HASHES = 10;
+
+    private final int capacity;
+    private final long windowMs;
+    private final int bits;
+    private long[] current;
+    private long[] previous;
+    private int currentCount;
+    private long currentStart = -1;
+    private long duplicates;
+
+    public IdempotencyFilter() {
+        this(DEFAULT_CAPACITY, DEFAULT_WINDOW_MS);
+    }
+
+    public IdempotencyFilter(int capacity, long windowMs) {
+        this.capacity = capacity;
+        this.windowMs = windowMs;
+        this.bits = Math.max(64, capacity * BITS_PER_KEY);
+        this.current = new long[(bits + 63) / 64];
+        this.previous = new long[current.length];
+    }
+
+    public synchronized long getDuplicateCount() {
+        return duplicates;
+    }
+
+    public boolean contains(String key) {
+        return contains(key, System.currentTimeMillis());
+    }
+
+    /**
+     * Returns true if the key was added within the window. Checking does not add the key: it is
+     * only added once the call carrying it has been accepted, so that a call dropped before
+     * being recorded can still be retried.
+     */
+    public synchronized boolean contains(String key, long now) {
+        rotateIfNeeded(now);
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        boolean inCurrent = true;
+        boolean inPrevious = true;
+        for (int i = 0; i < HASHES; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bits;
+            long mask = 1L << bit;
+            inCurrent &= (current[bit >>> 6] & mask) != 0;
+            inPrevious &= (previous[bit >>> 6] & mask) != 0;
+        }
+        if (inCurrent || inPrevious) {
+            duplicates++;
+            return true;
+        }
+        return false;
+    }
+
+    public void add(String key) {
+        add(key, System.currentTimeMillis());
+    }
+
+    public synchronized void add(String key, long now) {
+        rotateIfNeeded(now);
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < HASHES; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bits;
+            current[bit >>> 6] |= 1L << bit;
+        }
+        currentCount++;
+    }
+
+    private void rotateIfNeeded(long now) {
+        if (currentStart < 0) {
+            currentStart = now;
+        } else if (currentCount >= capacity || now - currentStart >= windowMs) {
+            rotate(now);
+        }
+    }
+
+    private void rotate(long now) {
+        long[] cleared = previous;
+        Arrays.fill(cleared, 0);
+        previous = current;
+        current = cleared;
+        currentCount = 0;
+        currentStart = now;
+    }
+
+    /**
+     * 64-bit FNV-1a over the characters of the key, without allocating.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        // Murmur3 finalizer, so that both halves can be used as independent hashes
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
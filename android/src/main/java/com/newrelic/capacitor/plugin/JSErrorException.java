@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.capacitor.plugin;
+
+/**
+ * Carries a JavaScript error into the agent's handled exception API. The stack trace is the
+ * parsed JavaScript stack rather than the (irrelevant) native stack of the bridge thread.
+ * Every JS error has this exception class, so the JS error name leads the message.
+ */
+public class JSErrorException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+
+    public JSErrorException(String name, String message, StackTraceElement[] stackTrace) {
+        super(message == null || message.isEmpty() ? name : name + ": " + message);
+        this.name = name;
+        setStackTrace(stackTrace);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        // The native stack is replaced by the JS stack, so don't pay for capturing it
+        return this;
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.capacitor.plugin;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses V8/Chromium formatted JavaScript stacks (as produced by the Android System WebView)
+ * into {@link StackTraceElement} arrays. Results are cached by stack text, since the same
+ * error is usually thrown repeatedly from the same place.
+ * <p>
+ * {@link StackTraceElement} has no column, so the columns of the frames are kept alongside.
+ * In a minified bundle every frame is on line 1 and only the column tells them apart.
+ */
+public class JSStackTraceParser {
+
+    static final int MAX_CACHED_STACKS = 64;
+    static final int MAX_FRAMES = 128;
+
+    // "    at fn (http://host/main.js:10:15)", "    at new Foo (...)", "    at async fn (...)"
+    private static final Pattern FRAME_WITH_FUNCTION =
+            Pattern.compile("^\\s*at\\s+(?:async\\s+)?(?:new\\s+)?(.+?)\\s+\\((.*?)(?::(\\d+))?(?::(\\d+))?\\)\\s*$");
+
+    // "    at http://host/main.js:10:15"
+    private static final Pattern FRAME_WITHOUT_FUNCTION =
+            Pattern.compile("^\\s*at\\s+(?:async\\s+)?(.*?)(?::(\\d+))?(?::(\\d+))?\\s*$");
+
+    // "eval at fn (http://host/main.js:1:2), <anonymous>:1:1"
+    private static final Pattern EVAL_LOCATION = Pattern.compile("^eval at .*?\\((.*?)\\),.*$");
+
+    private static final Pattern LINE_SPLITTER = Pattern.compile("\r?\n");
+
+    private static final ParsedStack EMPTY = new ParsedStack(new StackTraceElement[0], new int[0]);
+
+    /**
+     * The frames of a stack, and the column of each frame (-1 if unknown).
+     */
+    public static class ParsedStack {
+        public final StackTraceElement[] frames;
+        final int[] columns;
+
+        ParsedStack(StackTraceElement[] frames, int[] columns) {
+            this.frames = frames;
+            this.columns = columns;
+        }
+
+        /**
+         * Returns the column of the top frame, or -1 if there is no frame or its column is unknown.
+         */
+        public int topColumn() {
+            return columns.length > 0 ? columns[0] : -1;
+        }
+    }
+
+    private final Map<String, ParsedStack> cache =
+            new LinkedHashMap<String, ParsedStack>(MAX_CACHED_STACKS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ParsedStack> eldest) {
+                    return size() > MAX_CACHED_STACKS;
+                }
+            };
+
+    private volatile SourceMapSymbolicator symbolicator;
+
+    /**
+     * Resolves frames through the given source maps before they are converted (null disables).
+     */
+    public void setSymbolicator(SourceMapSymbolicator symbolicator) {
+        this.symbolicator = symbolicator;
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Returns the parsed frames of the given stack, or an empty array if no frame could be read.
+     * The returned array is shared with the cache and must not be modified.
+     */
+    public StackTraceElement[] parse(String stack) {
+        return parseStack(stack).frames;
+    }
+
+    /**
+     * Returns the parsed frames of the given stack with their columns. The result is shared with
+     * the cache and must not be modified.
+     */
+    public ParsedStack parseStack(String stack) {
+        if (stack == null || stack.isEmpty()) {
+            return EMPTY;
+        }
+
+        synchronized (cache) {
+            ParsedStack cached = cache.get(stack);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        List<JSStackFrame> frames = parseFrames(stack);
+        SourceMapSymbolicator symbolicator = this.symbolicator;
+        if (symbolicator != null) {
+            List<JSStackFrame> symbolicated = symbolicator.symbolicate(frames);
+            if (symbolicated == null) {
+                // A source map is still being indexed: report the frames as they are, uncached
+                return toParsedStack(frames);
+            }
+            frames = symbolicated;
+        }
+
+        ParsedStack parsed = toParsedStack(frames);
+        synchronized (cache) {
+            cache.put(stack, parsed);
+        }
+        return parsed;
+    }
+
+    List<JSStackFrame> parseFrames(String stack) {
+        List<JSStackFrame> frames = new ArrayList<>();
+        for (String line : LINE_SPLITTER.split(stack)) {
+            if (frames.size() >= MAX_FRAMES) {
+                break;
+            }
+            JSStackFrame frame = parseLine(line);
+            if (frame != null) {
+                frames.add(frame);
+            }
+        }
+        return frames;
+    }
+
+    static JSStackFrame parseLine(String line) {
+        if (line.indexOf("at ") < 0) {
+            // The first line of a V8 stack is the "Name: message" header
+            return null;
+        }
+
+        Matcher matcher = FRAME_WITH_FUNCTION.matcher(line);
+        if (matcher.matches()) {
+            String location = matcher.group(2);
+            Matcher evalMatcher = EVAL_LOCATION.matcher(location);
+            if (evalMatcher.matches()) {
+                return parseLine("at " + matcher.group(1) + " (" + evalMatcher.group(1) + ")");
+            }
+            return new JSStackFrame(matcher.group(1), location,
+                    toInt(matcher.group(3)), toInt(matcher.group(4)));
+        }
+
+        matcher = FRAME_WITHOUT_FUNCTION.matcher(line);
+        if (matcher.matches() && !matcher.group(1).isEmpty()) {
+            return new JSStackFrame(null, matcher.group(1),
+                    toInt(matcher.group(2)), toInt(matcher.group(3)));
+        }
+
+        return null;
+    }
+
+    private static ParsedStack toParsedStack(List<JSStackFrame> frames) {
+        return frames.isEmpty() ? EMPTY : new ParsedStack(toStackTraceElements(frames), columns(frames));
+    }
+
+    static StackTraceElement[] toStackTraceElements(List<JSStackFrame> frames) {
+        StackTraceElement[] elements = new StackTraceElement[frames.size()];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = frames.get(i).toStackTraceElement();
+        }
+        return elements;
+    }
+
+    private static int[] columns(List<JSStackFrame> frames) {
+        int[] columns = new int[frames.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = frames.get(i).column;
+        }
+        return columns;
+    }
+
+    private static int toInt(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static class JSStackFrame {
+        final String function;
+        final String file;
+        final int line;
+        final int column;
+
+        JSStackFrame(String function, String file, int line, int column) {
+            this.function = function;
+            this.file = file;
+            this.line = line;
+            this.column = column;
+        }
+
+        StackTraceElement toStackTraceElement() {
+            String declaringClass;
+            String methodName;
+
+            if (function == null || function.isEmpty()) {
+                declaringClass = fileName();
+                methodName = "<anonymous>";
+            } else {
+                int dot = function.lastIndexOf('.');
+                if (dot > 0 && dot < function.length() - 1) {
+                    declaringClass = function.substring(0, dot);
+                    methodName = function.substring(dot + 1);
+                } else {
+                    declaringClass = fileName();
+                    methodName = function;
+                }
+            }
+
+            return new StackTraceElement(declaringClass, methodName, file, line);
+        }
+
+        private String fileName() {
+            String name = file;
+            int query = name.indexOf('?');
+            if (query >= 0) {
+                name = name.substring(0, query);
+            }
+            int slash = name.lastIndexOf('/');
+            if (slash >= 0 && slash < name.length() - 1) {
+                name = name.substring(slash + 1);
+            }
+            return name.isEmpty() ? "<unknown>" : name;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.capacitor.plugin;
+
+import android.os.Build;
+import android.os.Debug;
+
+import com.newrelic.agent.android.NewRelic;
+import com.newrelic.agent.android.metric.MetricUnit;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples process memory and GC activity in the background. The sampling interval shortens while
+ * memory use is changing quickly and grows while it is stable. Samples are aggregated into
+ * min/max/average per harvest interval and reported as metrics in the Memory category; GC counts
+ * and times are reported as deltas.
+ * <p>
+ * Sampling stops while the app is in the background.
+ */
+public class MemorySampler {
+
+    static final String METRIC_CATEGORY = "Memory";
+    static final long MIN_INTERVAL_MS = 2_000;
+    static final long BASE_INTERVAL_MS = 10_000;
+    static final long MAX_INTERVAL_MS = 60_000;
+    static final long REPORT_INTERVAL_MS = 60_000;
+
+    // Change between two samples, in bytes, that makes the interval shorter or longer
+    static final long FAST_CHANGE_BYTES = 4 * 1024 * 1024;
+    static final long SLOW_CHANGE_BYTES = 512 * 1024;
+
+    // PSS is far more expensive to read than the heap sizes, only read it every few samples
+    static final int PSS_SAMPLE_EVERY = 6;
+
+    /**
+     * Where samples come from. Values are in bytes, and negative when not available.
+     */
+    public interface Source {
+        long javaHeapUsed();
+
+        long nativeHeapUsed();
+
+        long totalPss();
+
+        long gcCount();
+
+        long gcTimeMs();
+    }
+
+    /**
+     * Receives the aggregated samples at the end of each harvest interval.
+     */
+    public interface Reporter {
+        void gauge(String name, long count, double sum, double min, double max);
+
+        void counter(String name, double value);
+    }
+
+    static class Gauge {
+        final String name;
+        long count;
+        double sum;
+        double min;
+        double max;
+
+        Gauge(String name) {
+            this.name = name;
+        }
+
+        void add(long value) {
+            if (value < 0) {
+                return;
+            }
+            if (count == 0 || value < min) {
+                min = value;
+            }
+            if (count == 0 || value > max) {
+                max = value;
+            }
+            count++;
+            sum += value;
+        }
+
+        void reportTo(Reporter reporter) {
+            if (count > 0) {
+                reporter.gauge(name, count, sum, min, max);
+            }
+            count = 0;
+            sum = 0;
+        }
+    }
+
+    private final Source source;
+    private final Reporter reporter;
+    private final Gauge javaHeap = new Gauge("JavaHeapUsed");
+    private final Gauge nativeHeap = new Gauge("NativeHeapUsed");
+    // Includes the WebView renderer when it runs in the app process
+    private final Gauge pss = new Gauge("TotalPss");
+
+    private long intervalMs = BASE_INTERVAL_MS;
+    private long lastJavaHeap = -1;
+    private long lastNativeHeap = -1;
+    private long lastGcCount = -1;
+    private long lastGcTimeMs = -1;
+    private long lastReportMs;
+    private int samples;
+
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> next;
+    private boolean running;
+    private boolean paused;
+
+    public MemorySampler() {
+        this(new AndroidSource(), new AgentReporter());
+    }
+
+    public MemorySampler(Source source, Reporter reporter) {
+        this.source = source;
+        this.reporter = reporter;
+    }
+
+    public synchronized long getInterval() {
+        return intervalMs;
+    }
+
+    public synchronized void start(ScheduledExecutorService scheduler) {
+        if (running) {
+            return;
+        }
+        running = true;
+        this.scheduler = scheduler;
+        lastReportMs = System.currentTimeMillis();
+        scheduleNext(0);
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        cancel();
+        report();
+    }
+
+    /**
+     * Stops sampling while the app is in the background, reporting what was collected so far.
+     */
+    public synchronized void pause() {
+        paused = true;
+        if (running) {
+            cancel();
+            report();
+        }
+    }
+
+    public synchronized void resume() {
+        paused = false;
+        intervalMs = BASE_INTERVAL_MS;
+        lastReportMs = System.currentTimeMillis();
+        scheduleNext(0);
+    }
+
+    synchronized void tick() {
+        if (!running || paused) {
+            return;
+        }
+        sample();
+        long now = System.currentTimeMillis();
+        if (now - lastReportMs >= REPORT_INTERVAL_MS) {
+            report();
+            lastReportMs = now;
+        }
+        scheduleNext(intervalMs);
+    }
+
+    /**
+     * Takes one sample and adapts the interval to how much memory use changed since the last one.
+     */
+    public synchronized void sample() {
+        long java = source.javaHeapUsed();
+        long nativeHeap = source.nativeHeapUsed();
+        javaHeap.add(java);
+        this.nativeHeap.add(nativeHeap);
+        if (samples++ % PSS_SAMPLE_EVERY == 0) {
+            pss.add(source.totalPss());
+        }
+
+        if (lastJavaHeap >= 0) {
+            long change = Math.abs(java - lastJavaHeap) + Math.abs(nativeHeap - lastNativeHeap);
+            if (change >= FAST_CHANGE_BYTES) {
+                intervalMs = Math.max(MIN_INTERVAL_MS, intervalMs / 2);
+            } else if (change <= SLOW_CHANGE_BYTES) {
+                intervalMs = Math.min(MAX_INTERVAL_MS, intervalMs * 2);
+            }
+        }
+        lastJavaHeap = java;
+        lastNativeHeap = nativeHeap;
+    }
+
+    /**
+     * Reports and resets the aggregates of the current harvest interval.
+     */
+    public synchronized void report() {
+        javaHeap.reportTo(reporter);
+        nativeHeap.reportTo(reporter);
+        pss.reportTo(reporter);
+
+        long gcCount = source.gcCount();
+        long gcTimeMs = source.gcTimeMs();
+        if (gcCount >= 0 && lastGcCount >= 0) {
+            reporter.counter("GC/Count", gcCount - lastGcCount);
+            reporter.counter("GC/Time", (gcTimeMs - lastGcTimeMs) / 1000.0);
+        }
+        lastGcCount = gcCount;
+        lastGcTimeMs = gcTimeMs;
+    }
+
+    private void scheduleNext(long delayMs) {
+        cancel();
+        if (running && !paused && scheduler != null) {
+            next = scheduler.schedule(this::tick, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void cancel() {
+        if (next != null) {
+            next.cancel(false);
+            next = null;
+        }
+    }
+
+    static class AndroidSource implements Source {
+        @Override
+        public long javaHeapUsed() {
+            Runtime runtime = Runtime.getRuntime();
+            return runtime.totalMemory() - runtime.freeMemory();
+        }
+
+        @Override
+        public long nativeHeapUsed() {
+            return Debug.getNativeHeapAllocatedSize();
+        }
+
+        @Override
+        public long totalPss() {
+            return Debug.getPss() * 1024;
+        }
+
+        @Override
+        public long gcCount() {
+            return runtimeStat("art.gc.gc-count");
+        }
+
+        @Override
+        public long gcTimeMs() {
+            return runtimeStat("art.gc.gc-time");
+        }
+
+        private static long runtimeStat(String name) {
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+                return -1;
+            }
+            try {
+                return Long.parseLong(Debug.getRuntimeStat(name));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+
+    static class AgentReporter implements Reporter {
+        @Override
+        public void gauge(String name, long count, double sum, double min, double max) {
+            NewRelic.recordMetric(name, METRIC_CATEGORY, (int) count, sum, sum,
+                    MetricUnit.OPERATIONS, MetricUnit.BYTES);
+            NewRelic.recordMetric(name + "/Min", METRIC_CATEGORY, min);
+            NewRelic.recordMetric(name + "/Max", METRIC_CATEGORY, max);
+        }
+
+        @Override
+        public void counter(String name, double value) {
+            NewRelic.recordMetric(name, METRIC_CATEGORY, value);
+        }
+    }
+}
@@ -6,6 +6,11 @@
 package com.newrelic.capacitor.plugin;
 
 import android.Manifest;
+import android.app.Activity;
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.content.pm.PackageManager;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.getcapacitor.JSObject;
@@ -21,19 +26,67 @@ import com.newrelic.agent.android.metric.MetricUnit;
 import com.newrelic.agent.android.stats.StatsEngine;
 import com.newrelic.agent.android.util.NetworkFailure;
 import com.newrelic.agent.android.logging.AgentLog;
-import com.newrelic.com.google.gson.Gson;
 
+import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.regex.PatternSyntaxException;
 
 @CapacitorPlugin(name = "NewRelicCapacitorPlugin", permissions = {
         @Permission(strings = { Manifest.permission.ACCESS_NETWORK_STATE }, alias = "network"),
         @Permission(strings = { Manifest.permission.INTERNET }, alias = "internet") })
 public class NewRelicCapacitorPluginPlugin extends Plugin {
 
+    private static final String CONSOLE_EVENT_TYPE = "consoleEvents";
+    private static final String BREADCRUMB_EVENT_TYPE = "MobileBreadcrumb";
+    // Bundles usually sit at the root of "public" or in a folder such as "static/js"
+    private static final int MAX_SOURCE_MAP_DEPTH = 3;
+    // Calls recorded by the telemetry tap, and the only ones a replay may drive
+    private static final Set<String> TAPPED_METHODS = new HashSet<>(Arrays.asList(
+            "setUserId", "setAttribute", "removeAttribute", "recordBreadcrumb", "recordCustomEvent",
+            "startInteraction", "endInteraction", "incrementAttribute", "noticeHttpTransaction",
+            "recordMetric", "recordDistribution", "removeAllAttributes", "recordError"));
+
     private final NewRelicCapacitorPlugin implementation = new NewRelicCapacitorPlugin();
+    private final JSStackTraceParser stackTraceParser = new JSStackTraceParser();
+    private final BridgeLatencyProbe bridgeLatencyProbe = new BridgeLatencyProbe();
+    private final TelemetryDispatcher dispatcher = new TelemetryDispatcher();
+    private final HttpBodyCapturePolicy bodyCapturePolicy = new HttpBodyCapturePolicy();
+    private final UrlNormalizer urlNormalizer = new UrlNormalizer();
+    private final AttributeMaps attributeMaps = new AttributeMaps();
+    private final AttributeValidator attributeValidator = new AttributeValidator();
+    private final AttributeProjection attributeProjection = new AttributeProjection();
+    private final BackgroundThrottle backgroundThrottle = new BackgroundThrottle();
+    private final IdempotencyFilter idempotencyFilter = new IdempotencyFilter();
+    private final StringDeduplicator stringDeduplicator = new StringDeduplicator();
+    private final EventRollup eventRollup = new EventRollup(attributeValidator);
+    private final FrameMonitor frameMonitor = new FrameMonitor();
+    private final MemorySampler memorySampler = new MemorySampler();
+    private final DistributionRecorder distributionRecorder = new DistributionRecorder();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "NewRelicCapacitorPlugin");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile TelemetryTap telemetryTap;
+    private volatile boolean replaying;
+    private volatile BreadcrumbBuffer breadcrumbBuffer;
+    private volatile SpanTracker spanTracker = new SpanTracker(SpanTracker.DEFAULT_MAX_OPEN_SPANS);
+    private boolean crashFlushInstalled;
+    private WarmStartStore warmStartStore;
+    private long warmStartedAt;
     private AgentConfig agentConfig;
     private static class AgentConfig {
         boolean analyticsEventEnabled;
@@ -47,6 +100,23 @@ public class NewRelicCapacitorPluginPlugin extends Plugin {
         String collectorAddress;
         String crashCollectorAddress;
         boolean sendConsoleEvents;
+        boolean sourceMapSymbolicationEnabled;
+        boolean bridgeLatencyProbeEnabled;
+        JSONObject urlNormalization;
+        JSONArray eventRollups;
+        JSONArray attributeProjections;
+        JSONObject backgroundThrottling;
+        boolean telemetryTapEnabled;
+        int breadcrumbBufferSize;
+        boolean breadcrumbBufferCompact;
+        int maxOpenSpans;
+        String spanReporting;
+        boolean warmStartEnabled;
+        boolean frameMonitorEnabled;
+        boolean memorySamplerEnabled;
+        String distributionReporting;
+        int stringDedupMinLength;
+        int stringDedupMaxEntries;
 
         public AgentConfig() {
             this.analyticsEventEnabled = true;
@@ -60,6 +130,19 @@ public class NewRelicCapacitorPluginPlugin extends Plugin {
             this.collectorAddress = "mobile-collector.newrelic.com";
             this.crashCollectorAddress = "mobile-crash.newrelic.com";
             this.sendConsoleEvents = true;
+            this.sourceMapSymbolicationEnabled = false;
+            this.bridgeLatencyProbeEnabled = false;
+            this.telemetryTapEnabled = false;
+            this.breadcrumbBufferSize = 0;
+            this.breadcrumbBufferCompact = false;
+            this.maxOpenSpans = SpanTracker.DEFAULT_MAX_OPEN_SPANS;
+            this.spanReporting = "METRICS";
+            this.warmStartEnabled = false;
+            this.frameMonitorEnabled = false;
+            this.memorySamplerEnabled = false;
+            this.distributionReporting = "METRICS";
+            this.stringDedupMinLength = 0;
+            this.stringDedupMaxEntries = StringDeduplicator.DEFAULT_MAX_ENTRIES;
         }
     }
 
@@ -67,6 +150,57 @@ public class NewRelicCapacitorPluginPlugin extends Plugin {
     public void load() {
         super.load();
         agentConfig = new AgentConfig();
+        warmStart();
+    }
+
+    /**
+     * Starts the agent with the configuration persisted by the last start call, if warm start was
+     * enabled, so that slow cold starts and early crashes are recorded.
+     */
+    private void warmStart() {
+        warmStartStore = new WarmStartStore(
+                getContext().getSharedPreferences(WarmStartStore.PREFERENCES_NAME, Context.MODE_PRIVATE));
+        String appKey = warmStartStore.getAppKey();
+        if(appKey == null) {
+            return;
+        }
+
+        String configuration = warmStartStore.getAgentConfiguration();
+        long begin = SystemClock.elapsedRealtime();
+        try {
+            startAgent(appKey, configuration != null ? new JSObject(configuration) : null);
+        } catch (Exception e) {
+            Log.w("NRMA", "Warm start failed, waiting for start: " + e.getMessage());
+            warmStartStore.clear();
+            return;
+        }
+        warmStartedAt = SystemClock.elapsedRealtime();
+        StatsEngine.get().sampleTimeMs("Supportability/Mobile/Capacitor/WarmStart/Duration", warmStartedAt - begin);
+    }
+
+    @Override
+    protected void handleOnPause() {
+        super.handleOnPause();
+        frameMonitor.pause();
+        memorySampler.pause();
+        backgroundThrottle.enterBackground(System.currentTimeMillis());
+        // Send what is pending now rather than whenever the app comes back, if ever
+        scheduler.execute(this::flushPending);
+    }
+
+    @Override
+    protected void handleOnResume() {
+        super.handleOnResume();
+        backgroundThrottle.enterForeground();
+        frameMonitor.resume();
+        memorySampler.resume();
+    }
+
+    private void flushPending() {
+        dispatcher.flush();
+        eventRollup.flush();
+        spanTracker.flush();
+        distributionRecorder.flush();
     }
 
     @PluginMethod
@@ -79,6 +213,38 @@ public class NewRelicCapacitorPluginPlugin extends Plugin {
             return;
         }
 
+        String configuration = agentConfiguration != null ? agentConfiguration.toString() : null;
+        if(warmStartedAt > 0) {
+            // How much earlier the agent was started than this call would have started it
+            StatsEngine.get().sampleTimeMs("Supportability/Mobile/Capacitor/WarmStart/TimeSaved",
+                    SystemClock.elapsedRealtime() - warmStartedAt);
+            warmStartedAt = 0;
+            if(warmStartStore.matches(appKey, configuration)) {
+                StatsEngine.get().inc("Supportability/Mobile/Capacitor/WarmStart/Reconciled");
+                call.resolve();
+                return;
+            }
+            // The agent is already running: the plugin options below apply now, but its app key,
+            // collector addresses and log level only change when it is started on the next launch
+            StatsEngine.get().inc("Supportability/Mobile/Capacitor/WarmStart/Mismatch");
+            Log.w("NRMA", "start called with a different configuration than the warm start, the app key, " +
+                    "collector addresses and log level take effect on the next launch");
+        }
+
+        startAgent(appKey, agentConfiguration);
+
+        if(warmStartStore != null) {
+            if(agentConfig.warmStartEnabled) {
+                warmStartStore.save(appKey, configuration);
+            } else {
+                warmStartStore.clear();
+            }
+        }
+
+        call.resolve();
+    }
+
+    private void startAgent(String appKey, JSObject agentConfiguration) {
         boolean loggingEnabled = true;
         int logLevel = AgentLog.INFO;
         String collectorAddress = null;
@@ -133,6 +299,19 @@ public class NewRelicCapacitorPluginPlugin extends Plugin {
                 NewRelic.enableFeature(FeatureFlag.HttpResponseBodyCapture);
                 agentConfig.httpResponseBodyCaptureEnabled = true;
             }
+            bodyCapturePolicy.setEnabled(agentConfig.httpResponseBodyCaptureEnabled);
+
+            if(agentConfiguration.getInteger("httpResponseBodyCaptureMaxBytes") != null) {
+                bodyCapturePolicy.setMaxBytes(agentConfiguration.getInteger("httpResponseBodyCaptureMaxBytes"));
+            }
+
+            if(agentConfiguration.getBool("httpResponseBodyCaptureErrorsOnly") != null) {
+                bodyCapturePolicy.setErrorsOnly(agentConfiguration.getBool("httpResponseBodyCaptureErrorsOnly"));
+            }
+
+            if(agentConfiguration.getBool("httpResponseBodyCaptureHashEnabled") != null) {
+                bodyCapturePolicy.setHashEnabled(agentConfiguration.getBool("httpResponseBodyCaptureHashEnabled"));
+            }
 
             if(agentConfiguration.getBool("loggingEnabled") != null) {
                 loggingEnabled = Boolean.TRUE.equals(agentConfiguration.getBool("loggingEnabled"));
@@ -171,6 +350,159 @@ public class NewRelicCapacitorPluginPlugin extends Plugin {
                 agentConfig.sendConsoleEvents = agentConfiguration.getBool("sendConsoleEvents");
             } 
 
+            if(agentConfiguration.getBool("sourceMapSymbolicationEnabled") != null) {
+                agentConfig.sourceMapSymbolicationEnabled = agentConfiguration.getBool("sourceMapSymbolicationEnabled");
+            }
+
+            if(agentConfiguration.getBool("bridgeLatencyProbeEnabled") != null) {
+                agentConfig.bridgeLatencyProbeEnabled = agentConfiguration.getBool("bridgeLatencyProbeEnabled");
+            }
+
+            if(agentConfiguration.getBool("telemetryTapEnabled") != null) {
+                agentConfig.telemetryTapEnabled = agentConfiguration.getBool("telemetryTapEnabled");
+            }
+
+            if(agentConfiguration.getInteger("breadcrumbBufferSize") != null) {
+                agentConfig.breadcrumbBufferSize = Math.max(0, agentConfiguration.getInteger("breadcrumbBufferSize"));
+            }
+
+            if(agentConfiguration.getBool("breadcrumbBufferCompact") != null) {
+                agentConfig.breadcrumbBufferCompact = agentConfiguration.getBool("breadcrumbBufferCompact");
+            }
+
+            if(agentConfiguration.getInteger("maxOpenSpans") != null) {
+                agentConfig.maxOpenSpans = Math.max(1, agentConfiguration.getInteger("maxOpenSpans"));
+            }
+
+            if(agentConfiguration.getString("spanReporting") != null) {
+                try {
+                    SpanTracker.Reporting.valueOf(agentConfiguration.getString("spanReporting"));
+                    agentConfig.spanReporting = agentConfiguration.getString("spanReporting");
+                } catch (IllegalArgumentException e) {
+                    Log.w("NRMA", "Ignoring invalid spanReporting: " + agentConfiguration.getString("spanReporting"));
+                }
+            }
+
+            if(agentConfiguration.getBool("warmStartEnabled") != null) {
+                agentConfig.warmStartEnabled = agentConfiguration.getBool("warmStartEnabled");
+            }
+
+            if(agentConfiguration.getBool("frameMonitorEnabled") != null) {
+                agentConfig.frameMonitorEnabled = agentConfiguration.getBool("frameMonitorEnabled");
+            }
+
+            if(agentConfiguration.getBool("memorySamplerEnabled") != null) {
+                agentConfig.memorySamplerEnabled = agentConfiguration.getBool("memorySamplerEnabled");
+            }
+
+            if(agentConfiguration.getString("distributionReporting") != null) {
+                try {
+                    DistributionRecorder.Reporting.valueOf(agentConfiguration.getString("distributionReporting"));
+                    agentConfig.distributionReporting = agentConfiguration.getString("distributionReporting");
+                } catch (IllegalArgumentException e) {
+                    Log.w("NRMA", "Ignoring invalid distributionReporting: " + agentConfiguration.getString("distributionReporting"));
+                }
+            }
+
+            if(agentConfiguration.getInteger("stringDedupMinLength") != null) {
+                agentConfig.stringDedupMinLength = Math.max(0, agentConfiguration.getInteger("stringDedupMinLength"));
+            }
+
+            if(agentConfiguration.getInteger("stringDedupMaxEntries") != null) {
+                agentConfig.stringDedupMaxEntries = Math.max(1, agentConfiguration.getInteger("stringDedupMaxEntries"));
+            }
+
+            JSONObject urlNormalization = agentConfiguration.optJSONObject("urlNormalization");
+            if(urlNormalization != null) {
+                configureUrlNormalizer(urlNormalization);
+                agentConfig.urlNormalization = urlNormalization;
+            }
+
+            JSONArray eventRollups = agentConfiguration.optJSONArray("eventRollups");
+            if(eventRollups != null) {
+                configureEventRollups(eventRollups);
+                agentConfig.eventRollups = eventRollups;
+            }
+
+            JSONArray attributeProjections = agentConfiguration.optJSONArray("attributeProjections");
+            if(attributeProjections != null) {
+                configureAttributeProjections(attributeProjections);
+                agentConfig.attributeProjections = attributeProjections;
+            }
+
+            JSONObject backgroundThrottling = agentConfiguration.optJSONObject("backgroundThrottling");
+            if(backgroundThrottling != null) {
+                configureBackgroundThrottle(backgroundThrottling);
+                agentConfig.backgroundThrottling = backgroundThrottling;
+            }
+
+        }
+
+        if(agentConfig.sourceMapSymbolicationEnabled) {
+            stackTraceParser.setSymbolicator(createSymbolicator());
+        } else {
+            stackTraceParser.setSymbolicator(null);
+        }
+
+        if(agentConfig.bridgeLatencyProbeEnabled) {
+            bridgeLatencyProbe.start(scheduler);
+        } else {
+            bridgeLatencyProbe.stop();
+        }
+
+        if(agentConfig.telemetryTapEnabled) {
+            if(telemetryTap == null) {
+                telemetryTap = new TelemetryTap(new File(getContext().getFilesDir(), "newrelic/tap"));
+            }
+        } else if(telemetryTap != null) {
+            telemetryTap.close();
+            telemetryTap = null;
+        }
+
+        BreadcrumbBuffer previousBuffer = breadcrumbBuffer;
+        if(previousBuffer == null
+                || previousBuffer.getCapacity() != agentConfig.breadcrumbBufferSize
+                || previousBuffer.isCompact() != agentConfig.breadcrumbBufferCompact) {
+            breadcrumbBuffer = agentConfig.breadcrumbBufferSize > 0
+                    ? new BreadcrumbBuffer(agentConfig.breadcrumbBufferSize, agentConfig.breadcrumbBufferCompact)
+                    : null;
+            if(previousBuffer != null) {
+                previousBuffer.flush();
+            }
+        }
+
+        if(spanTracker.getMaxOpenSpans() != agentConfig.maxOpenSpans) {
+            SpanTracker previousTracker = spanTracker;
+            SpanTracker tracker = new SpanTracker(agentConfig.maxOpenSpans);
+            // Spans opened before the restart are ended by id on the new tracker
+            previousTracker.moveOpenSpansTo(tracker);
+            spanTracker = tracker;
+            previousTracker.stop();
+            previousTracker.flush();
+        }
+        spanTracker.setReporting(SpanTracker.Reporting.valueOf(agentConfig.spanReporting));
+        spanTracker.start(scheduler);
+
+        if(agentConfig.frameMonitorEnabled) {
+            Activity activity = getActivity();
+            if(activity != null) {
+                frameMonitor.setRefreshRate(activity.getWindowManager().getDefaultDisplay().getRefreshRate());
+            }
+            frameMonitor.start(scheduler);
+        } else {
+            frameMonitor.stop();
+        }
+
+        distributionRecorder.setReporting(DistributionRecorder.Reporting.valueOf(agentConfig.distributionReporting));
+        distributionRecorder.start(scheduler);
+
+        stringDeduplicator.setMaxEntries(agentConfig.stringDedupMaxEntries);
+        stringDeduplicator.setMinLength(agentConfig.stringDedupMinLength);
+
+        if(agentConfig.memorySamplerEnabled) {
+            memorySampler.start(scheduler);
+        } else {
+            memorySampler.stop();
         }
 
         // Use default collector addresses if not set
@@ -196,12 +528,214 @@ public class NewRelicCapacitorPluginPlugin extends Plugin {
                     .start(this.getActivity().getApplication());
         }
 
-        call.resolve();
+        if(breadcrumbBuffer != null) {
+            installCrashFlush();
+        }
+    }
+
+    /**
+     * Emits buffered breadcrumbs before the crash is handed to the agent's crash reporter, which
+     * is the default handler once the agent has started.
+     */
+    private void installCrashFlush() {
+        if(crashFlushInstalled) {
+            return;
+        }
+        crashFlushInstalled = true;
+
+        Thread.UncaughtExceptionHandler agentHandler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, throwable) -> {
+            BreadcrumbBuffer buffer = breadcrumbBuffer;
+            if(buffer != null) {
+                buffer.flush();
+            }
+            if(agentHandler != null) {
+                agentHandler.uncaughtException(thread, throwable);
+            }
+        });
+    }
+
+    private void configureUrlNormalizer(JSONObject urlNormalization) {
+        urlNormalizer.setStripQuery(urlNormalization.optBoolean("stripQuery", true));
+        urlNormalizer.setReplaceIds(urlNormalization.optBoolean("replaceIds", true));
+        urlNormalizer.setMaxPathsPerHost(urlNormalization.optInt("maxPathsPerHost", UrlNormalizer.DEFAULT_MAX_PATHS_PER_HOST));
+
+        urlNormalizer.clearRules();
+        JSONArray rules = urlNormalization.optJSONArray("rules");
+        if(rules != null) {
+            for(int i = 0; i < rules.length(); i++) {
+                JSONObject rule = rules.optJSONObject(i);
+                if(rule == null || rule.optString("pattern", "").isEmpty()) {
+                    continue;
+                }
+                try {
+                    urlNormalizer.addRule(rule.has("host") ? rule.optString("host") : null,
+                            rule.optString("pattern"), rule.optString("replacement", ""));
+                } catch (PatternSyntaxException e) {
+                    Log.w("NRMA", "Ignoring invalid urlNormalization rule: " + e.getMessage());
+                }
+            }
+        }
+
+        urlNormalizer.setEnabled(urlNormalization.optBoolean("enabled", true));
+    }
+
+    private void configureEventRollups(JSONArray eventRollups) {
+        eventRollup.clearRules();
+        for(int i = 0; i < eventRollups.length(); i++) {
+            JSONObject rollup = eventRollups.optJSONObject(i);
+            if(rollup == null || rollup.optString("eventType", "").isEmpty()) {
+                continue;
+            }
+            JSONArray dimensions = rollup.optJSONArray("dimensions");
+            String[] dimensionNames = new String[dimensions != null ? dimensions.length() : 0];
+            for(int j = 0; j < dimensionNames.length; j++) {
+                dimensionNames[j] = attributeMaps.intern(dimensions.optString(j));
+            }
+            eventRollup.addRule(rollup.optString("eventType"), dimensionNames,
+                    rollup.optLong("windowSeconds", EventRollup.DEFAULT_WINDOW_SECONDS));
+        }
+
+        if(eventRollup.hasRules()) {
+            eventRollup.start(scheduler);
+        } else {
+            eventRollup.stop();
+        }
+    }
+
+    private void configureBackgroundThrottle(JSONObject backgroundThrottling) {
+        JSONObject rates = backgroundThrottling.optJSONObject("ratesPerMinute");
+        for(BackgroundThrottle.Category category : BackgroundThrottle.Category.values()) {
+            String key = category.name().toLowerCase(Locale.ROOT);
+            if(rates != null && rates.has(key)) {
+                backgroundThrottle.setRate(category, rates.optInt(key, backgroundThrottle.getRate(category)));
+            }
+        }
+        backgroundThrottle.setEnabled(backgroundThrottling.optBoolean("enabled", true));
+    }
+
+    private void configureAttributeProjections(JSONArray attributeProjections) {
+        attributeProjection.clearRules();
+        for(int i = 0; i < attributeProjections.length(); i++) {
+            JSONObject projection = attributeProjections.optJSONObject(i);
+            if(projection == null || projection.optString("eventType", "").isEmpty()) {
+                continue;
+            }
+
+            String[] allow = null;
+            JSONArray allowKeys = projection.optJSONArray("allow");
+            if(allowKeys != null) {
+                allow = new String[allowKeys.length()];
+                for(int j = 0; j < allow.length; j++) {
+                    allow[j] = attributeMaps.intern(allowKeys.optString(j));
+                }
+            }
+
+            Set<String> deny = new HashSet<>();
+            JSONArray denyKeys = projection.optJSONArray("deny");
+            if(denyKeys != null) {
+                for(int j = 0; j < denyKeys.length(); j++) {
+                    deny.add(denyKeys.optString(j));
+                }
+            }
+
+            Map<String, String> renames = new HashMap<>();
+            JSONObject renameKeys = projection.optJSONObject("rename");
+            if(renameKeys != null) {
+                Iterator<String> keys = renameKeys.keys();
+                while(keys.hasNext()) {
+                    String key = keys.next();
+                    String renamed = renameKeys.optString(key, "");
+                    if(!renamed.isEmpty()) {
+                        renames.put(key, attributeMaps.intern(renamed));
+                    }
+                }
+            }
+
+            attributeProjection.addRule(projection.optString("eventType"),
+                    new AttributeProjection.Rule(allow, deny, renames));
+        }
+    }
+
+    /**
+     * Returns true if the call carries an idempotency key that was already recorded, in which
+     * case it is a retry by JS and should be resolved without recording it again.
+     */
+    private boolean isRetry(PluginCall call) {
+        String idempotencyKey = call.getString("idempotencyKey");
+        if(idempotencyKey == null || idempotencyKey.isEmpty() || TelemetryReplay.isReplay(call)) {
+            return false;
+        }
+        if(idempotencyFilter.contains(idempotencyKey)) {
+            StatsEngine.get().inc("Supportability/Mobile/Capacitor/Idempotency/Duplicate");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Remembers the idempotency key of a call once it has been accepted for recording. Calls
+     * that were throttled or dropped are not remembered, so their retries are still recorded.
+     */
+    private void accepted(PluginCall call) {
+        String idempotencyKey = call.getString("idempotencyKey");
+        if(idempotencyKey != null && !idempotencyKey.isEmpty() && !TelemetryReplay.isReplay(call)) {
+            idempotencyFilter.add(idempotencyKey);
+        }
+    }
+
+    private void tap(PluginCall call) {
+        TelemetryTap tap = telemetryTap;
+        if(tap != null && !TelemetryReplay.isReplay(call)) {
+            JSObject data = call.getData();
+            tap.record(call.getMethodName(), data != null ? data.toString() : "", System.currentTimeMillis());
+        }
+    }
+
+    private SourceMapSymbolicator createSymbolicator() {
+        Context context = getContext();
+        String buildId;
+        try {
+            buildId = String.valueOf(context.getPackageManager()
+                    .getPackageInfo(context.getPackageName(), 0).lastUpdateTime);
+        } catch (PackageManager.NameNotFoundException e) {
+            buildId = "0";
+        }
+
+        // Capacitor serves the web bundle from the "public" assets folder. Indices are built on
+        // the scheduler, ahead of the first error, so the CRITICAL lane never waits on them
+        AssetManager assets = context.getAssets();
+        SourceMapSymbolicator symbolicator = new SourceMapSymbolicator(
+                path -> assets.open("public/" + path + ".map"),
+                new File(context.getFilesDir(), "newrelic/sourcemaps"),
+                buildId, scheduler);
+        scheduler.execute(() -> prepareSourceMaps(assets, "public", "", 0, symbolicator));
+        return symbolicator;
+    }
+
+    private void prepareSourceMaps(AssetManager assets, String assetDir, String path, int depth, SourceMapSymbolicator symbolicator) {
+        String[] names;
+        try {
+            names = assets.list(assetDir);
+        } catch (IOException e) {
+            return;
+        }
+        if (names == null) {
+            return;
+        }
+        for (String name : names) {
+            if (name.endsWith(".js.map")) {
+                symbolicator.prepare(path + name.substring(0, name.length() - ".map".length()));
+            } else if (name.indexOf('.') < 0 && depth < MAX_SOURCE_MAP_DEPTH) {
+                // Without an extension it is most likely a folder
+                prepareSourceMaps(assets, assetDir + "/" + name, path + name + "/", depth + 1, symbolicator);
+            }
+        }
     }
-    
 
     @PluginMethod
     public void setUserId(PluginCall call) {
+        tap(call);
         String value = call.getString("userId");
 
         if(value == null) {
@@ -215,6 +749,7 @@ public class NewRelicCapacitorPluginPlugin extends Plugin {
 
     @PluginMethod
     public void setAttribute(PluginCall call) {
+        tap(call);
         String name = call.getString("name");
         String value = call.getString("value");
 
@@ -223,12 +758,14 @@ public class NewRelicCapacitorPluginPlugin extends Plugin {
             return;
         }
 
-        NewRelic.setAttribute(name, value);
+        // Through the event lane, so it stays ordered with the custom events recorded around it
+        dispatcher.dispatchOrRun(TelemetryDispatcher.Priority.EVENT, () -> NewRelic.setAttribute(name, value));
         call.resolve();
     }
 
     @PluginMethod
     public void removeAttribute(PluginCall call) {
+        tap(call);
         String name = call.getString("name");
 
         if(name == null) {
@@ -236,12 +773,14 @@ public class NewRelicCapacitorPluginPlugin extends Plugin {
             return;
         }
 
-        NewRelic.removeAttribute(name);
+        dispatcher.dispatchOrRun(TelemetryDispatcher.Priority.EVENT, () -> NewRelic.removeAttribute(name));
         call.resolve();
     }
 
     @PluginMethod
     public void recordBreadcrumb(PluginCall call) {
+        tap(call);
+        long received = bridgeLatencyProbe.received(call);
         String name = call.getString("name");
         JSONObject eventAttributes = call.getObject("eventAttributes");
 
@@ -250,14 +789,37 @@ public class NewRelicCapacitorPluginPlugin extends Plugin {
             return;
         }
 
-        Map yourHashMap = new Gson().fromJson(String.valueOf(eventAttributes), Map.class);
+        if(!backgroundThrottle.allow(BackgroundThrottle.Category.BREADCRUMB)) {
+            call.resolve();
+            return;
+        }
 
-        NewRelic.recordBreadcrumb(name, yourHashMap);
+        BreadcrumbBuffer buffer = breadcrumbBuffer;
+        if(buffer != null) {
+            // Buffering does not call into the agent, no need to leave the bridge thread
+            Map<String, Object> attributeMap = attributeMaps.fromJSON(eventAttributes,
+                    attributeProjection.ruleFor(BREADCRUMB_EVENT_TYPE));
+            attributeValidator.validate(attributeMap);
+            buffer.add(name, attributeMap, System.currentTimeMillis());
+            attributeMaps.release(attributeMap);
+        } else {
+            dispatcher.dispatch(TelemetryDispatcher.Priority.BULK, () -> {
+                Map<String, Object> attributeMap = attributeMaps.fromJSON(eventAttributes,
+                        attributeProjection.ruleFor(BREADCRUMB_EVENT_TYPE));
+                attributeValidator.validate(attributeMap);
+                stringDeduplicator.apply(attributeMap);
+                NewRelic.recordBreadcrumb(name, attributeMap);
+                attributeMaps.release(attributeMap);
+            });
+        }
+        bridgeLatencyProbe.handled(call, received);
         call.resolve();
     }
 
     @PluginMethod
     public void recordCustomEvent(PluginCall call) {
+        tap(call);
+        long received = bridgeLatencyProbe.received(call);
         String name = call.getString("eventName");
         String eventType = call.getString("eventType");
         JSONObject attributes = call.getObject("attributes");
@@ -267,14 +829,45 @@ public class NewRelicCapacitorPluginPlugin extends Plugin {
             return;
         }
 
-        Map yourHashMap = new Gson().fromJson(String.valueOf(attributes), Map.class);
+        if(!attributeValidator.isValidEventType(eventType)) {
+            call.reject("Invalid eventType given to recordCustomEvent");
+            return;
+        }
+
+        if(isRetry(call)) {
+            call.resolve();
+            return;
+        }
 
-        NewRelic.recordCustomEvent(eventType, name, yourHashMap);
+        boolean consoleEvent = CONSOLE_EVENT_TYPE.equals(eventType);
+        if(!backgroundThrottle.allow(consoleEvent ? BackgroundThrottle.Category.CONSOLE : BackgroundThrottle.Category.EVENT)) {
+            call.resolve();
+            return;
+        }
+
+        // Console events are bulk traffic, keep them behind app defined events
+        TelemetryDispatcher.Priority priority = consoleEvent
+                ? TelemetryDispatcher.Priority.BULK
+                : TelemetryDispatcher.Priority.EVENT;
+        boolean dispatched = dispatcher.dispatch(priority, () -> {
+            Map<String, Object> attributeMap = attributeMaps.fromJSON(attributes, attributeProjection.ruleFor(eventType));
+            attributeValidator.validate(attributeMap);
+            if (!eventRollup.record(eventType, attributeMap)) {
+                stringDeduplicator.apply(attributeMap);
+                NewRelic.recordCustomEvent(attributeMaps.intern(eventType), name, attributeMap);
+            }
+            attributeMaps.release(attributeMap);
+        });
+        if(dispatched) {
+            accepted(call);
+        }
+        bridgeLatencyProbe.handled(call, received);
         call.resolve();
     }
 
     @PluginMethod
     public void startInteraction(PluginCall call) {
+        tap(call);
         String actionName = call.getString("value");
 
         if(actionName == null) {
@@ -282,13 +875,17 @@ public class NewRelicCapacitorPluginPlugin extends Plugin {
             return;
         }
 
+        String interactionId = NewRelic.startInteraction(actionName);
+        frameMonitor.enterScope(interactionId, actionName);
+
         JSObject ret = new JSObject();
-        ret.put("value", NewRelic.startInteraction(actionName));
+        ret.put("value", interactionId);
         call.resolve(ret);
     }
 
     @PluginMethod
     public void endInteraction(PluginCall call) {
+        tap(call);
         String interactionId = call.getString("interactionId");
 
         if(interactionId == null) {
@@ -296,7 +893,8 @@ public class NewRelicCapacitorPluginPlugin extends Plugin {
             return;
         }
 
-        NewRelic.endInteraction(interactionId);
+        frameMonitor.exitScope(interactionId);
+        dispatcher.dispatch(TelemetryDispatcher.Priority.INTERACTION, () -> NewRelic.endInteraction(interactionId));
         call.resolve();
     }
 
@@ -320,6 +918,7 @@ public class NewRelicCapacitorPluginPlugin extends Plugin {
 
     @PluginMethod
     public void incrementAttribute(PluginCall call) {
+        tap(call);
         String name = call.getString("name");
         Double value = call.getDouble("value");
 
@@ -338,6 +937,8 @@ public class NewRelicCapacitorPluginPlugin extends Plugin {
 
     @PluginMethod
     public void noticeHttpTransaction(PluginCall call) {
+        tap(call);
+        long received = bridgeLatencyProbe.received(call);
         String url = call.getString("url");
         String method = call.getString("method");
         Integer status = call.getInt("status");
@@ -358,12 +959,30 @@ public class NewRelicCapacitorPluginPlugin extends Plugin {
             return;
         }
 
-        NewRelic.noticeHttpTransaction(url, method, status, startTime, endTime, bytesSent, bytesReceived, body);
+        if (isRetry(call)) {
+            call.resolve();
+            return;
+        }
+
+        if (!backgroundThrottle.allow(BackgroundThrottle.Category.NETWORK)) {
+            call.resolve();
+            return;
+        }
+
+        boolean dispatched = dispatcher.dispatch(TelemetryDispatcher.Priority.INTERACTION, () ->
+                NewRelic.noticeHttpTransaction(urlNormalizer.normalize(url), method, status, startTime, endTime,
+                        bytesSent, bytesReceived, bodyCapturePolicy.apply(status, body)));
+        if (dispatched) {
+            accepted(call);
+        }
+        bridgeLatencyProbe.handled(call, received);
         call.resolve();
     }
 
     @PluginMethod
     public void recordMetric(PluginCall call) {
+        tap(call);
+        long received = bridgeLatencyProbe.received(call);
         String name = call.getString("name");
         String category = call.getString("category");
         Double value = call.getDouble("value");
@@ -375,12 +994,19 @@ public class NewRelicCapacitorPluginPlugin extends Plugin {
             return;
         }
 
+        if (!backgroundThrottle.allow(BackgroundThrottle.Category.METRIC)) {
+            call.resolve();
+            return;
+        }
+
         if (value == null) {
-            NewRelic.recordMetric(name, category);
+            dispatcher.dispatch(TelemetryDispatcher.Priority.EVENT, () -> NewRelic.recordMetric(name, category));
+            bridgeLatencyProbe.handled(call, received);
             call.resolve();
         } else {
             if (countUnit == null && valueUnit == null) {
-                NewRelic.recordMetric(name, category, value);
+                dispatcher.dispatch(TelemetryDispatcher.Priority.EVENT, () -> NewRelic.recordMetric(name, category, value));
+                bridgeLatencyProbe.handled(call, received);
                 call.resolve();
             } else {
                 if (countUnit == null || valueUnit == null) {
@@ -394,8 +1020,11 @@ public class NewRelicCapacitorPluginPlugin extends Plugin {
                     strToMetricUnit.put("OPERATIONS", MetricUnit.OPERATIONS);
 
                     if (strToMetricUnit.containsKey(countUnit) && strToMetricUnit.containsKey(valueUnit)) {
-                        NewRelic.recordMetric(name, category, 1, value, value, strToMetricUnit.get(countUnit),
-                                strToMetricUnit.get(valueUnit));
+                        MetricUnit metricCountUnit = strToMetricUnit.get(countUnit);
+                        MetricUnit metricValueUnit = strToMetricUnit.get(valueUnit);
+                        dispatcher.dispatch(TelemetryDispatcher.Priority.EVENT, () ->
+                                NewRelic.recordMetric(name, category, 1, value, value, metricCountUnit, metricValueUnit));
+                        bridgeLatencyProbe.handled(call, received);
                         call.resolve();
                     } else {
                         call.reject(
@@ -406,9 +1035,42 @@ public class NewRelicCapacitorPluginPlugin extends Plugin {
         }
     }
 
+    @PluginMethod
+    public void recordDistribution(PluginCall call) {
+        tap(call);
+        String name = call.getString("name");
+        String category = call.getString("category");
+        Double value = call.getDouble("value");
+        String valueUnit = call.getString("valueUnit");
+
+        if (name == null || category == null || value == null) {
+            call.reject("Bad name, category or value in recordDistribution");
+            return;
+        }
+
+        MetricUnit metricValueUnit = null;
+        if (valueUnit != null) {
+            try {
+                metricValueUnit = MetricUnit.valueOf(valueUnit);
+            } catch (IllegalArgumentException e) {
+                call.reject(
+                        "Bad valueUnit in recordDistribution. Must be one of: PERCENT, BYTES, SECONDS, BYTES_PER_SECOND, OPERATIONS");
+                return;
+            }
+        }
+
+        // Only updates a sketch, the agent is called once per harvest
+        if (!distributionRecorder.record(category, name, value, metricValueUnit)) {
+            call.reject("Too many distributions, " + name + " was not recorded");
+            return;
+        }
+        call.resolve();
+    }
+
     @PluginMethod
     public void removeAllAttributes(PluginCall call) {
-        NewRelic.removeAllAttributes();
+        tap(call);
+        dispatcher.dispatchOrRun(TelemetryDispatcher.Priority.EVENT, NewRelic::removeAllAttributes);
         call.resolve();
     }
 
@@ -440,6 +1102,8 @@ public class NewRelicCapacitorPluginPlugin extends Plugin {
 
     @PluginMethod
     public void recordError(PluginCall call) {
+        tap(call);
+        long received = bridgeLatencyProbe.received(call);
         String name = call.getString("name");
         String message = call.getString("message");
         String stack = call.getString("stack");
@@ -450,26 +1114,52 @@ public class NewRelicCapacitorPluginPlugin extends Plugin {
             return;
         }
 
-        try {
+        dispatcher.dispatch(TelemetryDispatcher.Priority.CRITICAL, () -> {
+            try {
+
+                Map<String, Object> crashEvents = attributeMaps.acquire();
+                crashEvents.put("Name", name);
+                crashEvents.put("Message", message);
+                crashEvents.put("isFatal", isFatal);
+
+                JSStackTraceParser.ParsedStack parsedStack = stackTraceParser.parseStack(stack);
+                StackTraceElement[] stackTrace = parsedStack.frames;
+                if (stackTrace.length == 0) {
+                    // Nothing to group on, so keep the raw text (trimmed to the attribute limit)
+                    crashEvents.put("errorStack", stack);
+                } else if (parsedStack.topColumn() >= 0) {
+                    // Tells apart errors thrown on the same line of a minified bundle
+                    crashEvents.put("errorColumn", parsedStack.topColumn());
+                }
+                // The handled exception and the events below all get the validated attributes
+                attributeValidator.validate(crashEvents);
+                if (stackTrace.length > 0) {
+                    // The agent keeps the attributes of a handled exception until the next harvest,
+                    // so it must not be given the pooled map. It is copied before deduplication:
+                    // references are not resolved for handled exceptions
+                    NewRelic.recordHandledException(new JSErrorException(name, message, stackTrace),
+                            new HashMap<>(crashEvents));
+                }
+                stringDeduplicator.apply(crashEvents);
 
-            Map<String, Object> crashEvents = new HashMap<>();
-            crashEvents.put("Name", name);
-            crashEvents.put("Message", message);
-            crashEvents.put("isFatal", isFatal);
-            if (stack != null) {
-                // attribute limit is 4096
-                crashEvents.put("errorStack",
-                        stack.length() > 4095 ? stack.substring(0, 4094) : stack);
-            }
+                BreadcrumbBuffer buffer = breadcrumbBuffer;
+                if (buffer != null) {
+                    buffer.add("JS Errors", crashEvents, System.currentTimeMillis());
+                    buffer.flush();
+                } else {
+                    NewRelic.recordBreadcrumb("JS Errors", crashEvents);
+                }
+                NewRelic.recordCustomEvent("JS Errors", "JS Errors", crashEvents);
 
-            NewRelic.recordBreadcrumb("JS Errors", crashEvents);
-            NewRelic.recordCustomEvent("JS Errors", "JS Errors", crashEvents);
+                StatsEngine.get().inc("Supportability/Mobile/Capacitor/JSError");
 
-            StatsEngine.get().inc("Supportability/Mobile/Capacitor/JSError");
+                attributeMaps.release(crashEvents);
 
-        } catch (IllegalArgumentException e) {
-            Log.w("NRMA", e.getMessage());
-        }
+            } catch (IllegalArgumentException e) {
+                Log.w("NRMA", e.getMessage());
+            }
+        });
+        bridgeLatencyProbe.handled(call, received);
         call.resolve();
     }
 
@@ -557,10 +1247,119 @@ public class NewRelicCapacitorPluginPlugin extends Plugin {
         if(agentConfig != null) {
             agentConfig.httpResponseBodyCaptureEnabled = toEnable;
         }
+        bodyCapturePolicy.setEnabled(toEnable);
 
         call.resolve();
     }
 
+    @PluginMethod
+    public void ping(PluginCall call) {
+        long received = bridgeLatencyProbe.received(call);
+
+        JSObject ret = new JSObject();
+        ret.put("nextPingInMs", bridgeLatencyProbe.nextPingInterval());
+        bridgeLatencyProbe.handled(call, received);
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void startSpan(PluginCall call) {
+        String name = call.getString("name");
+        Long parentSpanId = call.getLong("parentSpanId");
+
+        if(name == null) {
+            call.reject("Null name given to startSpan");
+            return;
+        }
+
+        SpanTracker.Span span = spanTracker.start(name, parentSpanId != null ? parentSpanId : 0);
+        if(span == null) {
+            call.reject("Too many open spans, end spans before starting new ones");
+            return;
+        }
+
+        JSObject ret = new JSObject();
+        ret.put("spanId", span.id);
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void endSpan(PluginCall call) {
+        Long spanId = call.getLong("spanId");
+
+        if(spanId == null) {
+            call.reject("Null spanId given to endSpan");
+            return;
+        }
+
+        SpanTracker tracker = spanTracker;
+        SpanTracker.Span span = tracker.end(spanId);
+        if(span == null) {
+            call.reject("No open span with spanId " + spanId);
+            return;
+        }
+
+        dispatcher.dispatch(TelemetryDispatcher.Priority.EVENT, () -> tracker.report(span));
+        JSObject ret = new JSObject();
+        ret.put("durationMs", span.durationMs());
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void replayTelemetryTap(PluginCall call) {
+        TelemetryTap tap = telemetryTap;
+        Double speed = call.getDouble("speed", 1.0);
+
+        if(tap == null) {
+            call.reject("Telemetry tap is not enabled");
+            return;
+        }
+
+        if(replaying) {
+            call.reject("A telemetry tap replay is already running");
+            return;
+        }
+
+        List<TelemetryTap.Record> records;
+        try {
+            tap.close();
+            records = TelemetryTap.read(tap.getDirectory());
+        } catch (IOException e) {
+            call.reject("Unable to read telemetry tap: " + e.getMessage());
+            return;
+        }
+
+        replaying = true;
+        Thread replay = new Thread(() -> {
+            try {
+                TelemetryReplay.Result result = new TelemetryReplay(records).run(speed, this::invokeForReplay);
+                dispatcher.flush();
+
+                JSObject ret = new JSObject();
+                ret.put("calls", result.calls);
+                ret.put("failed", result.failed);
+                ret.put("durationMs", result.durationMs);
+                ret.put("callsPerSecond", result.callsPerSecond());
+                call.resolve(ret);
+            } catch (InterruptedException e) {
+                call.reject("Telemetry tap replay interrupted");
+            } finally {
+                replaying = false;
+            }
+        }, "NewRelicCapacitorReplay");
+        replay.setDaemon(true);
+        replay.start();
+    }
+
+    private boolean invokeForReplay(String method, JSObject arguments) throws Exception {
+        if(!TAPPED_METHODS.contains(method)) {
+            return false;
+        }
+        TelemetryReplay.ReplayCall replayCall = new TelemetryReplay.ReplayCall(method, arguments);
+        getClass().getMethod(method, PluginCall.class).invoke(this, replayCall);
+        return !replayCall.isRejected();
+    }
+
     @PluginMethod
     public void getAgentConfiguration(PluginCall call) {
         JSObject ret = new JSObject();
@@ -572,10 +1371,38 @@ public class NewRelicCapacitorPluginPlugin extends Plugin {
             ret.put("networkRequestEnabled", agentConfig.networkRequestEnabled);
             ret.put("networkErrorRequestEnabled", agentConfig.networkErrorRequestEnabled);
             ret.put("httpResponseBodyCaptureEnabled", agentConfig.httpResponseBodyCaptureEnabled);
+            ret.put("httpResponseBodyCaptureMaxBytes", bodyCapturePolicy.getMaxBytes());
+            ret.put("httpResponseBodyCaptureErrorsOnly", bodyCapturePolicy.isErrorsOnly());
+            ret.put("httpResponseBodyCaptureHashEnabled", bodyCapturePolicy.isHashEnabled());
             ret.put("logLevel", agentConfig.logLevel);
             ret.put("collectorAddress", agentConfig.collectorAddress);
             ret.put("crashCollectorAddress", agentConfig.crashCollectorAddress);
             ret.put("sendConsoleEvents", agentConfig.sendConsoleEvents);
+            ret.put("sourceMapSymbolicationEnabled", agentConfig.sourceMapSymbolicationEnabled);
+            ret.put("bridgeLatencyProbeEnabled", agentConfig.bridgeLatencyProbeEnabled);
+            ret.put("telemetryTapEnabled", agentConfig.telemetryTapEnabled);
+            ret.put("breadcrumbBufferSize", agentConfig.breadcrumbBufferSize);
+            ret.put("breadcrumbBufferCompact", agentConfig.breadcrumbBufferCompact);
+            ret.put("maxOpenSpans", agentConfig.maxOpenSpans);
+            ret.put("spanReporting", agentConfig.spanReporting);
+            ret.put("warmStartEnabled", agentConfig.warmStartEnabled);
+            ret.put("frameMonitorEnabled", agentConfig.frameMonitorEnabled);
+            ret.put("memorySamplerEnabled", agentConfig.memorySamplerEnabled);
+            ret.put("distributionReporting", agentConfig.distributionReporting);
+            ret.put("stringDedupMinLength", agentConfig.stringDedupMinLength);
+            ret.put("stringDedupMaxEntries", agentConfig.stringDedupMaxEntries);
+            if (agentConfig.urlNormalization != null) {
+                ret.put("urlNormalization", agentConfig.urlNormalization);
+            }
+            if (agentConfig.eventRollups != null) {
+                ret.put("eventRollups", agentConfig.eventRollups);
+            }
+            if (agentConfig.attributeProjections != null) {
+                ret.put("attributeProjections", agentConfig.attributeProjections);
+            }
+            if (agentConfig.backgroundThrottling != null) {
+                ret.put("backgroundThrottling", agentConfig.backgroundThrottling);
+            }
         }
         call.resolve(ret);
     }
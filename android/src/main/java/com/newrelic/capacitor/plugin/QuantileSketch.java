@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.capacitor.plugin;
+
+/**
+ * Mergeable quantile sketch in the style of DDSketch: values are counted in logarithmically sized
+ * bins, so any quantile is returned within a fixed relative error. The number of bins is bounded;
+ * when it is exceeded the lowest bins are collapsed, which only affects the accuracy of the
+ * lowest quantiles.
+ * <p>
+ * Values at or below zero are counted in a separate zero bin. Not thread safe.
+ */
+public class QuantileSketch {
+
+    static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+    static final int DEFAULT_MAX_BINS = 2048;
+    static final double MIN_INDEXABLE_VALUE = 1e-9;
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double logGamma;
+    private final int maxBins;
+
+    private int[] bins = new int[0];
+    private int offset;
+    private int lowest = Integer.MAX_VALUE;
+    private int highest = Integer.MIN_VALUE;
+    private long zeroCount;
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public QuantileSketch() {
+        this(DEFAULT_RELATIVE_ACCURACY, DEFAULT_MAX_BINS);
+    }
+
+    public QuantileSketch(double relativeAccuracy, int maxBins) {
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+        this.maxBins = maxBins;
+    }
+
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public double getMin() {
+        return count > 0 ? min : 0;
+    }
+
+    public double getMax() {
+        return count > 0 ? max : 0;
+    }
+
+    public int binCount() {
+        return highest >= lowest ? highest - lowest + 1 : 0;
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+
+        if (value <= MIN_INDEXABLE_VALUE) {
+            zeroCount++;
+        } else {
+            increment(index(value), 1);
+        }
+    }
+
+    /**
+     * Adds the counts of another sketch with the same relative accuracy.
+     */
+    public void merge(QuantileSketch other) {
+        if (other.gamma != gamma) {
+            throw new IllegalArgumentException("Sketches with different relative accuracy cannot be merged");
+        }
+        if (other.count == 0) {
+            return;
+        }
+        for (int index = other.lowest; index <= other.highest; index++) {
+            int binCount = other.bins[index - other.offset];
+            if (binCount > 0) {
+                increment(index, binCount);
+            }
+        }
+        zeroCount += other.zeroCount;
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Returns the value at the given quantile (between 0 and 1), within the relative accuracy.
+     */
+    public double quantile(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        if (quantile <= 0) {
+            return min;
+        }
+        if (quantile >= 1) {
+            return max;
+        }
+
+        long rank = (long) (quantile * (count - 1));
+        if (rank < zeroCount) {
+            return Math.max(min, 0);
+        }
+        long seen = zeroCount;
+        for (int index = lowest; index <= highest; index++) {
+            seen += bins[index - offset];
+            if (seen > rank) {
+                return Math.max(min, Math.min(max, value(index)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Empties the sketch, keeping its bin array for the next interval.
+     */
+    public void clear() {
+        for (int index = lowest; index <= highest; index++) {
+            bins[index - offset] = 0;
+        }
+        lowest = Integer.MAX_VALUE;
+        highest = Integer.MIN_VALUE;
+        zeroCount = 0;
+        count = 0;
+        sum = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+    }
+
+    private int index(double value) {
+        return (int) Math.ceil(Math.log(value) / logGamma);
+    }
+
+    private double value(int index) {
+        // Midpoint of the bin, in relative terms
+        return 2 * Math.pow(gamma, index) / (1 + gamma);
+    }
+
+    private void increment(int index, int binCount) {
+        if (binCount() > 0) {
+            if (index < lowest && highest - index + 1 > maxBins) {
+                // Too far below the bins kept, count it in the lowest allowed one
+                index = highest - maxBins + 1;
+            } else if (index > highest && index - lowest + 1 > maxBins) {
+                collapseBelow(index - maxBins + 1, index);
+            }
+        }
+        if (bins.length == 0 || index < offset || index >= offset + bins.length) {
+            grow(Math.min(lowest, index), Math.max(highest, index));
+        }
+        bins[index - offset] += binCount;
+        lowest = Math.min(lowest, index);
+        highest = Math.max(highest, index);
+    }
+
+    /**
+     * Moves the counts of every bin below newLowest into newLowest, making room for newHighest.
+     */
+    private void collapseBelow(int newLowest, int newHighest) {
+        int collapsed = 0;
+        for (int index = lowest; index <= Math.min(highest, newLowest - 1); index++) {
+            collapsed += bins[index - offset];
+            bins[index - offset] = 0;
+        }
+        if (highest < newLowest) {
+            highest = Integer.MIN_VALUE;
+        }
+        lowest = newLowest;
+        if (newLowest < offset || newHighest >= offset + bins.length) {
+            grow(newLowest, Math.max(newHighest, highest));
+        }
+        bins[newLowest - offset] += collapsed;
+        highest = Math.max(highest, newLowest);
+    }
+
+    /**
+     * Reallocates the bins so that [from, to] fits, with some room on both sides.
+     */
+    private void grow(int from, int to) {
+        int span = to - from + 1;
+        int length = Math.min(maxBins, Math.max(span * 2, 64));
+        length = Math.max(length, span);
+        int newOffset = from - (length - span) / 2;
+        int[] newBins = new int[length];
+        for (int index = Math.max(lowest, from); index <= Math.min(highest, to); index++) {
+            newBins[index - newOffset] = bins[index - offset];
+        }
+        bins = newBins;
+        offset = newOffset;
+    }
+}
@@ -0,0 +1,477 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.capacitor.plugin;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Resolves minified JavaScript frames to their original location using the source maps bundled
+ * with the app.
+ * <p>
+ * The first time a bundle shows up in a stack, its source map is read once and its VLQ mappings
+ * are decoded into a compact index file:
+ * <pre>
+ *   header   magic, version, lineCount, entryCount, sourceCount, nameCount
+ *   lines    lineCount + 1 offsets into the entry table, one per generated line
+ *   entries  entryCount * (generatedColumn, source, originalLine, originalColumn, name)
+ *   strings  sources then names, each as a length prefixed UTF-8 string
+ * </pre>
+ * Segments without a source mark unmapped ranges and are kept with a source of -1.
+ * <p>
+ * The index is memory-mapped and looked up with a binary search, and is kept on disk so later
+ * launches of the same build skip the decoding entirely. Indices of other builds are deleted
+ * when the symbolicator is created.
+ * <p>
+ * Indices are built on the given executor, never on the thread symbolicating: frames of a bundle
+ * whose index is not ready yet are left as they are. {@link #prepare} builds an index ahead of
+ * the first error.
+ */
+public class SourceMapSymbolicator {
+
+    static final int INDEX_MAGIC = 0x4E52534D; // "NRSM"
+    static final int INDEX_VERSION = 2;
+    static final String INDEX_EXTENSION = ".idx";
+    static final int HEADER_INTS = 6;
+    static final int ENTRY_INTS = 5;
+
+    /**
+     * Opens the source map of a generated file, given by its path without origin (see
+     * {@link #stripOrigin}).
+     */
+    public interface SourceMapProvider {
+        InputStream open(String generatedFile) throws IOException;
+    }
+
+    private static final SourceMapIndex MISSING = new SourceMapIndex(null, null, null, new String[0], new String[0]);
+
+    private final SourceMapProvider provider;
+    private final File indexDir;
+    private final String buildId;
+    private final Executor executor;
+    private final Map<String, SourceMapIndex> indices = new HashMap<>();
+    private final Set<String> loading = new HashSet<>();
+
+    /**
+     * Builds indices on the calling thread, for tests and tools.
+     */
+    public SourceMapSymbolicator(SourceMapProvider provider, File indexDir, String buildId) {
+        this(provider, indexDir, buildId, Runnable::run);
+    }
+
+    public SourceMapSymbolicator(SourceMapProvider provider, File indexDir, String buildId, Executor executor) {
+        this.provider = provider;
+        this.indexDir = indexDir;
+        this.buildId = buildId;
+        this.executor = executor;
+        deleteStaleIndices();
+    }
+
+    /**
+     * Loads, or builds, the index of a generated file in the background.
+     */
+    public void prepare(String generatedFile) {
+        indexFor(stripOrigin(generatedFile));
+    }
+
+    /**
+     * Returns the original frames, or null if the index of a bundle in the stack is still being
+     * built. The caller then reports the frames as they are.
+     */
+    List<JSStackTraceParser.JSStackFrame> symbolicate(List<JSStackTraceParser.JSStackFrame> frames) {
+        List<JSStackTraceParser.JSStackFrame> symbolicated = new ArrayList<>(frames.size());
+        boolean complete = true;
+        for (JSStackTraceParser.JSStackFrame frame : frames) {
+            JSStackTraceParser.JSStackFrame original = null;
+            if (frame.line > 0 && frame.column > 0) {
+                SourceMapIndex index = indexFor(stripOrigin(frame.file));
+                if (index == null) {
+                    complete = false;
+                } else if (index != MISSING) {
+                    original = index.lookup(frame);
+                }
+            }
+            symbolicated.add(original != null ? original : frame);
+        }
+        return complete ? symbolicated : null;
+    }
+
+    private SourceMapIndex indexFor(String path) {
+        synchronized (indices) {
+            SourceMapIndex index = indices.get(path);
+            if (index != null || !loading.add(path)) {
+                return index;
+            }
+        }
+        executor.execute(() -> {
+            SourceMapIndex index = loadIndex(path);
+            synchronized (indices) {
+                indices.put(path, index);
+                loading.remove(path);
+            }
+        });
+        synchronized (indices) {
+            // Already there if the executor ran it inline
+            return indices.get(path);
+        }
+    }
+
+    private void deleteStaleIndices() {
+        File[] files = indexDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        String current = "-" + buildId + "-v" + INDEX_VERSION + INDEX_EXTENSION;
+        for (File file : files) {
+            String name = file.getName();
+            if (name.contains(INDEX_EXTENSION) && !name.endsWith(current)) {
+                file.delete();
+            }
+        }
+    }
+
+    private SourceMapIndex loadIndex(String path) {
+        File indexFile = new File(indexDir, indexFileName(path));
+        try {
+            if (!indexFile.exists()) {
+                String json;
+                try (InputStream in = provider.open(path)) {
+                    if (in == null) {
+                        return MISSING;
+                    }
+                    json = readFully(in);
+                }
+                writeIndex(new JSONObject(json), indexFile);
+            }
+            return SourceMapIndex.map(indexFile);
+        } catch (Exception e) {
+            // No (usable) source map for this file: leave its frames as they are
+            indexFile.delete();
+            return MISSING;
+        }
+    }
+
+    String indexFileName(String path) {
+        return path.replaceAll("[^A-Za-z0-9._-]", "_") + "-" + buildId + "-v" + INDEX_VERSION + INDEX_EXTENSION;
+    }
+
+    /**
+     * Reduces a frame location such as "http://localhost/js/main.js?v=1" to "js/main.js".
+     */
+    public static String stripOrigin(String generatedFile) {
+        String path = generatedFile;
+        int scheme = path.indexOf("://");
+        if (scheme >= 0) {
+            int slash = path.indexOf('/', scheme + 3);
+            path = slash >= 0 ? path.substring(slash + 1) : "";
+        }
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        int fragment = path.indexOf('#');
+        if (fragment >= 0) {
+            path = path.substring(0, fragment);
+        }
+        while (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        return path;
+    }
+
+    static void writeIndex(JSONObject sourceMap, File indexFile) throws IOException, JSONException {
+        String sourceRoot = sourceMap.optString("sourceRoot", "");
+        if (!sourceRoot.isEmpty() && !sourceRoot.endsWith("/")) {
+            sourceRoot = sourceRoot + "/";
+        }
+        String[] sources = toStrings(sourceMap.optJSONArray("sources"), sourceRoot);
+        String[] names = toStrings(sourceMap.optJSONArray("names"), "");
+        String mappings = sourceMap.getString("mappings");
+
+        IntArray lines = new IntArray(256);
+        IntArray entries = new IntArray(mappings.length());
+        decodeMappings(mappings, lines, entries);
+
+        File dir = indexFile.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Unable to create " + dir);
+        }
+
+        File tmp = new File(indexFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(INDEX_VERSION);
+            out.writeInt(lines.size - 1);
+            out.writeInt(entries.size / ENTRY_INTS);
+            out.writeInt(sources.length);
+            out.writeInt(names.length);
+            lines.writeTo(out);
+            entries.writeTo(out);
+            for (String source : sources) {
+                writeString(out, source);
+            }
+            for (String name : names) {
+                writeString(out, name);
+            }
+        }
+        if (!tmp.renameTo(indexFile)) {
+            tmp.delete();
+            throw new IOException("Unable to write " + indexFile);
+        }
+    }
+
+    /**
+     * Decodes source map v3 "mappings" into absolute values. {@code lines} receives the offset of
+     * each generated line's first entry plus a trailing end offset.
+     */
+    static void decodeMappings(String mappings, IntArray lines, IntArray entries) {
+        int generatedColumn = 0;
+        int source = 0;
+        int originalLine = 0;
+        int originalColumn = 0;
+        int name = 0;
+
+        int[] segment = new int[5];
+        int length = mappings.length();
+        int pos = 0;
+
+        lines.add(0);
+        while (pos < length) {
+            char c = mappings.charAt(pos);
+            if (c == ';') {
+                lines.add(entries.size / ENTRY_INTS);
+                generatedColumn = 0;
+                pos++;
+                continue;
+            }
+            if (c == ',') {
+                pos++;
+                continue;
+            }
+
+            int fields = 0;
+            while (pos < length && mappings.charAt(pos) != ',' && mappings.charAt(pos) != ';') {
+                int value = 0;
+                int shift = 0;
+                boolean continuation;
+                do {
+                    int digit = base64Value(mappings.charAt(pos++));
+                    continuation = (digit & 32) != 0;
+                    value += (digit & 31) << shift;
+                    shift += 5;
+                } while (continuation);
+                if (fields < segment.length) {
+                    segment[fields] = (value & 1) != 0 ? -(value >>> 1) : value >>> 1;
+                }
+                fields++;
+            }
+
+            generatedColumn += segment[0];
+            if (fields == 1) {
+                // The range from this column on is unmapped
+                entries.add(generatedColumn);
+                entries.add(-1);
+                entries.add(-1);
+                entries.add(-1);
+                entries.add(-1);
+            } else if (fields >= 4) {
+                source += segment[1];
+                originalLine += segment[2];
+                originalColumn += segment[3];
+                if (fields >= 5) {
+                    name += segment[4];
+                }
+                entries.add(generatedColumn);
+                entries.add(source);
+                entries.add(originalLine);
+                entries.add(originalColumn);
+                entries.add(fields >= 5 ? name : -1);
+            }
+        }
+        lines.add(entries.size / ENTRY_INTS);
+    }
+
+    private static int base64Value(char c) {
+        if (c >= 'A' && c <= 'Z') return c - 'A';
+        if (c >= 'a' && c <= 'z') return c - 'a' + 26;
+        if (c >= '0' && c <= '9') return c - '0' + 52;
+        if (c == '+') return 62;
+        if (c == '/') return 63;
+        throw new IllegalArgumentException("Invalid VLQ character: " + c);
+    }
+
+    private static String[] toStrings(JSONArray array, String prefix) {
+        if (array == null) {
+            return new String[0];
+        }
+        String[] strings = new String[array.length()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = prefix + array.optString(i, "");
+        }
+        return strings;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    static class IntArray {
+        int[] values;
+        int size;
+
+        IntArray(int capacity) {
+            values = new int[Math.max(capacity, 16)];
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                int[] grown = new int[values.length * 2];
+                System.arraycopy(values, 0, grown, 0, size);
+                values = grown;
+            }
+            values[size++] = value;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            for (int i = 0; i < size; i++) {
+                out.writeInt(values[i]);
+            }
+        }
+    }
+
+    static class SourceMapIndex {
+        private final ByteBuffer buffer;
+        private final IntBuffer lines;
+        private final IntBuffer entries;
+        private final String[] sources;
+        private final String[] names;
+
+        SourceMapIndex(ByteBuffer buffer, IntBuffer lines, IntBuffer entries, String[] sources, String[] names) {
+            this.buffer = buffer;
+            this.lines = lines;
+            this.entries = entries;
+            this.sources = sources;
+            this.names = names;
+        }
+
+        static SourceMapIndex map(File indexFile) throws IOException {
+            MappedByteBuffer buffer;
+            try (RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+                 FileChannel channel = file.getChannel()) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+
+            if (buffer.getInt(0) != INDEX_MAGIC || buffer.getInt(4) != INDEX_VERSION) {
+                throw new IOException("Unknown source map index format");
+            }
+            int lineCount = buffer.getInt(8);
+            int entryCount = buffer.getInt(12);
+            int sourceCount = buffer.getInt(16);
+            int nameCount = buffer.getInt(20);
+
+            int linesOffset = HEADER_INTS * 4;
+            int entriesOffset = linesOffset + (lineCount + 1) * 4;
+            int stringsOffset = entriesOffset + entryCount * ENTRY_INTS * 4;
+
+            buffer.position(linesOffset);
+            IntBuffer lines = buffer.slice().asIntBuffer();
+            lines.limit(lineCount + 1);
+            buffer.position(entriesOffset);
+            IntBuffer entries = buffer.slice().asIntBuffer();
+            entries.limit(entryCount * ENTRY_INTS);
+
+            buffer.position(stringsOffset);
+            String[] sources = readStrings(buffer, sourceCount);
+            String[] names = readStrings(buffer, nameCount);
+
+            return new SourceMapIndex(buffer, lines, entries, sources, names);
+        }
+
+        private static String[] readStrings(ByteBuffer buffer, int count) {
+            String[] strings = new String[count];
+            for (int i = 0; i < count; i++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return strings;
+        }
+
+        /**
+         * Returns the original frame for a generated (1-based) line and column, or null if unmapped.
+         */
+        JSStackTraceParser.JSStackFrame lookup(JSStackTraceParser.JSStackFrame frame) {
+            int line = frame.line - 1;
+            int column = frame.column - 1;
+            if (line >= lines.limit() - 1) {
+                return null;
+            }
+
+            // Last entry on this line whose generated column is <= column
+            int low = lines.get(line);
+            int high = lines.get(line + 1) - 1;
+            int found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (entries.get(mid * ENTRY_INTS) <= column) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            if (found < 0) {
+                return null;
+            }
+
+            int base = found * ENTRY_INTS;
+            int source = entries.get(base + 1);
+            if (source < 0) {
+                return null;
+            }
+            int name = entries.get(base + 4);
+            String function = name >= 0 && name < names.length ? names[name] : frame.function;
+            String file = source >= 0 && source < sources.length ? sources[source] : frame.file;
+
+            return new JSStackTraceParser.JSStackFrame(function, file,
+                    entries.get(base + 2) + 1, entries.get(base + 3) + 1);
+        }
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.capacitor.plugin;
+
+import android.os.SystemClock;
+
+import com.newrelic.agent.android.NewRelic;
+import com.newrelic.agent.android.metric.MetricUnit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Times spans of app work with the monotonic native clock. Open spans live in a fixed-size,
+ * open-addressed table updated with compare-and-set, so starting and ending spans only wait
+ * while the table is being rehashed. Ended spans leave a tombstone in their slot; once
+ * tombstones pass a quarter of the table it is rehashed, so lookups that miss stay short.
+ * <p>
+ * The number of open spans is capped. Spans that are never ended, such as those of a page that
+ * was reloaded, are evicted once the cap is reached if they have been open longer than
+ * {@link #MAX_SPAN_AGE_NANOS}, so leaked spans can't block new ones for the rest of the process.
+ * <p>
+ * Closed spans are either aggregated per name and reported as metrics once per interval, with
+ * exclusive time excluding child spans, or recorded as one custom event each. At most
+ * {@link #MAX_NAMES} names are aggregated separately; spans with further names are aggregated
+ * under {@link #OTHER_NAME}, so names built from unbounded values don't grow the aggregates.
+ */
+public class SpanTracker {
+
+    static final int DEFAULT_MAX_OPEN_SPANS = 256;
+    static final String METRIC_CATEGORY = "Span";
+    static final String EVENT_TYPE = "Span";
+    static final long REPORT_INTERVAL_SECONDS = 60;
+    static final int MAX_NAMES = 100;
+    static final long MAX_SPAN_AGE_NANOS = TimeUnit.MINUTES.toNanos(10);
+    static final String OTHER_NAME = "Other";
+
+    public enum Reporting {
+        METRICS,
+        EVENTS
+    }
+
+    /**
+     * Receives closed spans, either aggregated or one at a time depending on the reporting mode.
+     */
+    public interface Reporter {
+        void metric(String name, long count, double totalSeconds, double exclusiveSeconds, double maxSeconds);
+
+        void event(String name, Map<String, Object> attributes);
+    }
+
+    public static class Span {
+        public final long id;
+        public final String name;
+        public final long parentId;
+        final long startNanos;
+        final AtomicLong childNanos = new AtomicLong();
+        long durationNanos;
+
+        Span(long id, String name, long parentId, long startNanos) {
+            this.id = id;
+            this.name = name;
+            this.parentId = parentId;
+            this.startNanos = startNanos;
+        }
+
+        public double durationMs() {
+            return durationNanos / 1_000_000.0;
+        }
+
+        public double exclusiveDurationMs() {
+            return Math.max(0, durationNanos - childNanos.get()) / 1_000_000.0;
+        }
+    }
+
+    private static class Stats {
+        long count;
+        long totalNanos;
+        long exclusiveNanos;
+        long maxNanos;
+    }
+
+    private static final Span REMOVED = new Span(0, null, 0, 0);
+
+    private final LongSupplier clock;
+    private final Reporter reporter;
+    private final int maxOpenSpans;
+    private final AtomicReferenceArray<Span> open;
+    private final AtomicInteger openCount = new AtomicInteger();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicInteger tombstones = new AtomicInteger();
+    // Start and end share the table, only a rehash needs it to itself
+    private final ReentrantReadWriteLock tableLock = new ReentrantReadWriteLock();
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    private volatile Reporting reporting = Reporting.METRICS;
+    private ScheduledFuture<?> ticker;
+
+    public SpanTracker(int maxOpenSpans) {
+        this(maxOpenSpans, SystemClock::elapsedRealtimeNanos, new AgentReporter());
+    }
+
+    public SpanTracker(int maxOpenSpans, LongSupplier clock, Reporter reporter) {
+        this.maxOpenSpans = Math.max(1, maxOpenSpans);
+        this.clock = clock;
+        this.reporter = reporter;
+        // At most half full, so probe sequences stay short
+        this.open = new AtomicReferenceArray<>(Integer.highestOneBit(this.maxOpenSpans) * 4);
+    }
+
+    public int getMaxOpenSpans() {
+        return maxOpenSpans;
+    }
+
+    public Reporting getReporting() {
+        return reporting;
+    }
+
+    public void setReporting(Reporting reporting) {
+        this.reporting = reporting;
+    }
+
+    public int openCount() {
+        return openCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getExpiredCount() {
+        return expired.get();
+    }
+
+    public int tombstoneCount() {
+        return tombstones.get();
+    }
+
+    public synchronized void start(ScheduledExecutorService scheduler) {
+        if (ticker == null) {
+            ticker = scheduler.scheduleWithFixedDelay(this::flush,
+                    REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (ticker != null) {
+            ticker.cancel(false);
+            ticker = null;
+        }
+    }
+
+    /**
+     * Opens a span. Returns null if the cap on open spans has been reached and no open span is
+     * old enough to be evicted.
+     */
+    public Span start(String name, long parentId) {
+        long now = clock.getAsLong();
+        Span span = null;
+        tableLock.readLock().lock();
+        try {
+            if (reserveSlot() || (evictExpired(now) > 0 && reserveSlot())) {
+                span = new Span(nextId.getAndIncrement(), name, parentId, now);
+                insert(span);
+            } else {
+                rejected.incrementAndGet();
+            }
+        } finally {
+            tableLock.readLock().unlock();
+        }
+        // Evicted spans leave tombstones too
+        rehashIfNeeded();
+        return span;
+    }
+
+    private boolean reserveSlot() {
+        if (openCount.incrementAndGet() > maxOpenSpans) {
+            openCount.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes the spans open for longer than the maximum age. Returns the number removed.
+     */
+    private int evictExpired(long now) {
+        int evicted = 0;
+        for (int index = 0; index < open.length(); index++) {
+            Span span = open.get(index);
+            if (span != null && span != REMOVED && now - span.startNanos > MAX_SPAN_AGE_NANOS
+                    && open.compareAndSet(index, span, REMOVED)) {
+                openCount.decrementAndGet();
+                tombstones.incrementAndGet();
+                evicted++;
+            }
+        }
+        expired.addAndGet(evicted);
+        return evicted;
+    }
+
+    private void insert(Span span) {
+        int mask = open.length() - 1;
+        // The count check guarantees a free slot
+        for (int i = 0; ; i++) {
+            int index = (int) (span.id + i) & mask;
+            Span current = open.get(index);
+            if ((current == null || current == REMOVED) && open.compareAndSet(index, current, span)) {
+                if (current == REMOVED) {
+                    tombstones.decrementAndGet();
+                }
+                return;
+            }
+        }
+    }
+
+    private void rehashIfNeeded() {
+        if (tombstones.get() <= open.length() / 4) {
+            return;
+        }
+        tableLock.writeLock().lock();
+        try {
+            if (tombstones.get() <= open.length() / 4) {
+                return;
+            }
+            List<Span> spans = new ArrayList<>(openCount.get());
+            for (int index = 0; index < open.length(); index++) {
+                Span span = open.get(index);
+                if (span != null && span != REMOVED) {
+                    spans.add(span);
+                }
+                open.set(index, null);
+            }
+            tombstones.set(0);
+            for (Span span : spans) {
+                insert(span);
+            }
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the open spans to the tracker replacing this one, so they can still be ended by id.
+     * The target continues the ids of this tracker. Spans past the cap of the target are dropped
+     * and counted as rejected. Returns the number of spans moved.
+     */
+    public int moveOpenSpansTo(SpanTracker target) {
+        int moved = 0;
+        tableLock.readLock().lock();
+        target.tableLock.readLock().lock();
+        try {
+            for (int index = 0; index < open.length(); index++) {
+                Span span = open.get(index);
+                if (span == null || span == REMOVED || !open.compareAndSet(index, span, REMOVED)) {
+                    continue;
+                }
+                openCount.decrementAndGet();
+                tombstones.incrementAndGet();
+                if (!target.reserveSlot()) {
+                    target.rejected.incrementAndGet();
+                    continue;
+                }
+                target.insert(span);
+                moved++;
+            }
+        } finally {
+            target.tableLock.readLock().unlock();
+            tableLock.readLock().unlock();
+        }
+        long next = nextId.get();
+        long targetNext;
+        while ((targetNext = target.nextId.get()) < next && !target.nextId.compareAndSet(targetNext, next)) {
+            // Retry
+        }
+        return moved;
+    }
+
+    /**
+     * Closes a span and returns it with its duration, or null if no such span is open. The
+     * duration is added to the child time of the parent span, if it is still open.
+     */
+    public Span end(long id) {
+        long now = clock.getAsLong();
+        Span span;
+        tableLock.readLock().lock();
+        try {
+            int index = indexOf(id);
+            if (index < 0) {
+                return null;
+            }
+            span = open.get(index);
+            if (span == REMOVED || span == null || span.id != id || !open.compareAndSet(index, span, REMOVED)) {
+                // Ended concurrently
+                return null;
+            }
+            openCount.decrementAndGet();
+            tombstones.incrementAndGet();
+
+            span.durationNanos = Math.max(0, now - span.startNanos);
+            if (span.parentId != 0) {
+                int parentIndex = indexOf(span.parentId);
+                if (parentIndex >= 0) {
+                    Span parent = open.get(parentIndex);
+                    if (parent != null && parent.id == span.parentId) {
+                        parent.childNanos.addAndGet(span.durationNanos);
+                    }
+                }
+            }
+        } finally {
+            tableLock.readLock().unlock();
+        }
+        rehashIfNeeded();
+        return span;
+    }
+
+    /**
+     * Reports a closed span according to the reporting mode.
+     */
+    public void report(Span span) {
+        if (reporting == Reporting.EVENTS) {
+            Map<String, Object> attributes = new HashMap<>();
+            attributes.put("spanId", span.id);
+            if (span.parentId != 0) {
+                attributes.put("parentSpanId", span.parentId);
+            }
+            attributes.put("durationMs", span.durationMs());
+            attributes.put("exclusiveDurationMs", span.exclusiveDurationMs());
+            reporter.event(span.name, attributes);
+            return;
+        }
+
+        Stats spanStats = stats.get(span.name);
+        if (spanStats == null) {
+            // Concurrent reports can go slightly past the limit, which is fine
+            String name = stats.size() < MAX_NAMES ? span.name : OTHER_NAME;
+            spanStats = stats.computeIfAbsent(name, key -> new Stats());
+        }
+        long exclusiveNanos = Math.max(0, span.durationNanos - span.childNanos.get());
+        synchronized (spanStats) {
+            spanStats.count++;
+            spanStats.totalNanos += span.durationNanos;
+            spanStats.exclusiveNanos += exclusiveNanos;
+            spanStats.maxNanos = Math.max(spanStats.maxNanos, span.durationNanos);
+        }
+    }
+
+    /**
+     * Reports the aggregated timings of the current interval.
+     */
+    public void flush() {
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            Stats spanStats = entry.getValue();
+            long count;
+            long totalNanos;
+            long exclusiveNanos;
+            long maxNanos;
+            synchronized (spanStats) {
+                count = spanStats.count;
+                totalNanos = spanStats.totalNanos;
+                exclusiveNanos = spanStats.exclusiveNanos;
+                maxNanos = spanStats.maxNanos;
+                spanStats.count = 0;
+                spanStats.totalNanos = 0;
+                spanStats.exclusiveNanos = 0;
+                spanStats.maxNanos = 0;
+            }
+            if (count > 0) {
+                reporter.metric(entry.getKey(), count, totalNanos / 1e9, exclusiveNanos / 1e9, maxNanos / 1e9);
+            }
+        }
+    }
+
+    private int indexOf(long id) {
+        int mask = open.length() - 1;
+        for (int i = 0; i < open.length(); i++) {
+            int index = (int) (id + i) & mask;
+            Span current = open.get(index);
+            if (current == null) {
+                return -1;
+            }
+            if (current != REMOVED && current.id == id) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    static class AgentReporter implements Reporter {
+        @Override
+        public void metric(String name, long count, double totalSeconds, double exclusiveSeconds, double maxSeconds) {
+            NewRelic.recordMetric(name, METRIC_CATEGORY, (int) count, totalSeconds, exclusiveSeconds,
+                    MetricUnit.OPERATIONS, MetricUnit.SECONDS);
+            NewRelic.recordMetric(name + "/Max", METRIC_CATEGORY, maxSeconds);
+        }
+
+        @Override
+        public void event(String name, Map<String, Object> attributes) {
+            NewRelic.recordCustomEvent(EVENT_TYPE, name, attributes);
+        }
+    }
+}
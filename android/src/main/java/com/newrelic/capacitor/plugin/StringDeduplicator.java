@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.capacitor.plugin;
+
+import com.newrelic.agent.android.NewRelic;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Replaces large string attribute values that repeat within a session (console arguments, error
+ * stacks) with a short reference. The first {@link #MIN_OCCURRENCES} - 1 times a value is seen it
+ * is sent as is, since a reference and its definition cost more than sending a value twice. The
+ * next time, one StringDefinition event carrying the value and its reference is recorded, and
+ * from then on the reference is sent instead of the value.
+ * <p>
+ * Values are identified by a 64-bit hash of their content. The dictionary keeps the most recently
+ * used hashes, up to a fixed number; an evicted value is defined again when it repeats. The
+ * dictionary is cleared when the agent session changes, so every session that uses a reference
+ * also records its definition, and a lost definition event only affects one session.
+ */
+public class StringDeduplicator {
+
+    static final int DEFAULT_MAX_ENTRIES = 512;
+    static final String EVENT_TYPE = "StringDefinition";
+    static final String REFERENCE_PREFIX = "nr-ref:";
+    static final int MIN_OCCURRENCES = 3;
+
+    /**
+     * Records the definition of a reference, before the first attribute using it is recorded.
+     */
+    public interface Emitter {
+        void define(String reference, String value);
+    }
+
+    /**
+     * Identifies the agent session references are currently defined in.
+     */
+    public interface SessionSource {
+        String currentSessionId();
+    }
+
+    private static class Definition {
+        final String reference;
+        int occurrences = 1;
+        boolean defined;
+
+        Definition(String reference) {
+            this.reference = reference;
+        }
+    }
+
+    private final Emitter emitter;
+    private final SessionSource sessionSource;
+    private final LinkedHashMap<Long, Definition> dictionary = new LinkedHashMap<Long, Definition>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Definition> eldest) {
+            return size() > maxEntries;
+        }
+    };
+    private volatile int minLength;
+    private volatile int maxEntries = DEFAULT_MAX_ENTRIES;
+    private long replaced;
+    private String sessionId;
+
+    public StringDeduplicator() {
+        this(new AgentEmitter(), NewRelic::currentSessionId);
+    }
+
+    public StringDeduplicator(Emitter emitter, SessionSource sessionSource) {
+        this.emitter = emitter;
+        this.sessionSource = sessionSource;
+    }
+
+    /**
+     * Sets the length from which values are deduplicated. 0 disables deduplication.
+     */
+    public void setMinLength(int minLength) {
+        this.minLength = Math.max(0, minLength);
+    }
+
+    public boolean isEnabled() {
+        return minLength > 0;
+    }
+
+    public synchronized void setMaxEntries(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    public synchronized long getReplacedCount() {
+        return replaced;
+    }
+
+    public synchronized int size() {
+        return dictionary.size();
+    }
+
+    /**
+     * Replaces, in place, the repeated large string values of the attributes with their reference.
+     */
+    public void apply(Map<String, Object> attributes) {
+        int length = minLength;
+        if (length <= 0) {
+            return;
+        }
+        synchronized (this) {
+            String currentSessionId = sessionSource.currentSessionId();
+            if (currentSessionId != null && !currentSessionId.equals(sessionId)) {
+                dictionary.clear();
+                sessionId = currentSessionId;
+            }
+            for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+                Object value = attribute.getValue();
+                if (value instanceof String && ((String) value).length() >= length) {
+                    attribute.setValue(deduplicate((String) value));
+                }
+            }
+        }
+    }
+
+    private String deduplicate(String value) {
+        Long hash = IdempotencyFilter.hash(value);
+        Definition definition = dictionary.get(hash);
+        if (definition == null) {
+            dictionary.put(hash, new Definition(REFERENCE_PREFIX + Long.toHexString(hash)));
+            return value;
+        }
+        if (!definition.defined) {
+            if (++definition.occurrences < MIN_OCCURRENCES) {
+                return value;
+            }
+            emitter.define(definition.reference, value);
+            definition.defined = true;
+        }
+        replaced++;
+        return definition.reference;
+    }
+
+    static class AgentEmitter implements Emitter {
+        @Override
+        public void define(String reference, String value) {
+            Map<String, Object> attributes = new HashMap<>();
+            attributes.put("reference", reference);
+            attributes.put("value", value);
+            attributes.put("length", value.length());
+            NewRelic.recordCustomEvent(EVENT_TYPE, reference, attributes);
+        }
+    }
+}
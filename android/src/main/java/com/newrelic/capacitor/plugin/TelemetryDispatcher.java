@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.capacitor.plugin;
+
+import android.util.Log;
+
+import com.newrelic.agent.android.stats.StatsEngine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Hands telemetry off to the agent from a single worker thread, so plugin calls return to the
+ * bridge as soon as they are validated. Work is queued in one bounded lane per priority and the
+ * lanes are drained with weighted round robin: a flood of console events or custom events can
+ * only slow an error down by a bounded amount, and overflow is dropped from the flooding lane.
+ */
+public class TelemetryDispatcher {
+
+    public enum Priority {
+        // Errors and crash data
+        CRITICAL(256, 8),
+        // Interactions and HTTP transactions
+        INTERACTION(1024, 4),
+        // Custom events and metrics
+        EVENT(2048, 2),
+        // Console events and breadcrumbs
+        BULK(2048, 1);
+
+        final int capacity;
+        final int weight;
+
+        Priority(int capacity, int weight) {
+            this.capacity = capacity;
+            this.weight = weight;
+        }
+    }
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final List<ArrayBlockingQueue<Runnable>> lanes = new ArrayList<>(PRIORITIES.length);
+    private final int[] credits = new int[PRIORITIES.length];
+    private final Semaphore pending = new Semaphore(0);
+    private volatile Thread worker;
+
+    public TelemetryDispatcher() {
+        for (Priority priority : PRIORITIES) {
+            lanes.add(new ArrayBlockingQueue<>(priority.capacity));
+        }
+    }
+
+    /**
+     * Queues the task in its priority lane. Returns false if the lane was full and the task was
+     * dropped; critical tasks are never dropped and run on the calling thread instead.
+     */
+    public boolean dispatch(Priority priority, Runnable task) {
+        if (priority == Priority.CRITICAL) {
+            dispatchOrRun(priority, task);
+            return true;
+        }
+        if (offer(priority, task)) {
+            return true;
+        }
+
+        StatsEngine.get().inc("Supportability/Mobile/Capacitor/Dispatch/" + priority.name() + "/Dropped");
+        return false;
+    }
+
+    /**
+     * Queues the task in its priority lane, or runs it on the calling thread if the lane is full.
+     * For work that must not be dropped, such as changes to global attributes: it stays ordered
+     * with the other tasks of its lane unless the lane overflows.
+     */
+    public void dispatchOrRun(Priority priority, Runnable task) {
+        if (!offer(priority, task)) {
+            run(task);
+        }
+    }
+
+    private boolean offer(Priority priority, Runnable task) {
+        if (worker == null) {
+            startWorker();
+        }
+        if (lanes.get(priority.ordinal()).offer(task)) {
+            pending.release();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Runs everything queued so far on the calling thread, highest priority first.
+     */
+    public void flush() {
+        for (ArrayBlockingQueue<Runnable> lane : lanes) {
+            Runnable task;
+            while (pending.tryAcquire()) {
+                task = lane.poll();
+                if (task == null) {
+                    pending.release();
+                    break;
+                }
+                run(task);
+            }
+        }
+    }
+
+    public int pendingCount() {
+        return pending.availablePermits();
+    }
+
+    private synchronized void startWorker() {
+        if (worker == null) {
+            worker = new Thread(this::drain, "NewRelicCapacitorDispatcher");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            try {
+                pending.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+            Runnable task = next();
+            if (task != null) {
+                run(task);
+            } else {
+                // Taken by a concurrent flush()
+                pending.release();
+            }
+        }
+    }
+
+    /**
+     * Weighted round robin: each lane may run up to its weight in tasks per round, and a new
+     * round starts once no lane with credit left has work.
+     */
+    Runnable next() {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            for (int i = 0; i < PRIORITIES.length; i++) {
+                if (credits[i] > 0) {
+                    Runnable task = lanes.get(i).poll();
+                    if (task != null) {
+                        credits[i]--;
+                        return task;
+                    }
+                }
+            }
+            for (int i = 0; i < PRIORITIES.length; i++) {
+                credits[i] = PRIORITIES[i].weight;
+            }
+        }
+        return null;
+    }
+
+    private static void run(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            Log.w("NRMA", "Unable to record telemetry: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.capacitor.plugin;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives plugin calls captured by a {@link TelemetryTap}, keeping their original spacing scaled by
+ * a speed factor (1 for real time, 10 for ten times faster, 0 for as fast as possible). Used to
+ * benchmark plugin and agent throughput against real traffic shapes.
+ */
+public class TelemetryReplay {
+
+    /**
+     * Receives each replayed call. Returns false if the call was rejected.
+     */
+    public interface Target {
+        boolean invoke(String method, JSObject arguments) throws Exception;
+    }
+
+    public static class Result {
+        public final int calls;
+        public final int failed;
+        public final long durationMs;
+
+        Result(int calls, int failed, long durationMs) {
+            this.calls = calls;
+            this.failed = failed;
+            this.durationMs = durationMs;
+        }
+
+        public double callsPerSecond() {
+            return durationMs > 0 ? calls * 1000.0 / durationMs : calls;
+        }
+    }
+
+    private final List<TelemetryTap.Record> records;
+
+    public TelemetryReplay(List<TelemetryTap.Record> records) {
+        this.records = records;
+    }
+
+    public Result run(double speed, Target target) throws InterruptedException {
+        long start = System.nanoTime();
+        long firstTimestamp = records.isEmpty() ? 0 : records.get(0).timestamp;
+        int failed = 0;
+
+        for (TelemetryTap.Record record : records) {
+            if (speed > 0) {
+                long due = start + TimeUnit.MILLISECONDS.toNanos((long) ((record.timestamp - firstTimestamp) / speed));
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+            }
+
+            try {
+                JSObject arguments = record.arguments.isEmpty() ? new JSObject() : new JSObject(record.arguments);
+                // The original send time would show up as bridge queue delay
+                arguments.remove("sentAt");
+                if (!target.invoke(record.method, arguments)) {
+                    failed++;
+                }
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                failed++;
+            }
+        }
+
+        return new Result(records.size(), failed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Returns true if the call is replayed from a tap rather than made by JS.
+     */
+    public static boolean isReplay(PluginCall call) {
+        return call instanceof ReplayCall;
+    }
+
+    /**
+     * A call that is not backed by the bridge, its outcome is kept instead of sent to JS.
+     */
+    static class ReplayCall extends PluginCall {
+        private boolean rejected;
+
+        ReplayCall(String method, JSObject arguments) {
+            super(null, "NewRelicCapacitorPlugin", "replay", method, arguments);
+        }
+
+        boolean isRejected() {
+            return rejected;
+        }
+
+        @Override
+        public void resolve() {
+        }
+
+        @Override
+        public void resolve(JSObject data) {
+        }
+
+        @Override
+        public void reject(String msg, String code, Exception ex, JSObject data) {
+            rejected = true;
+        }
+    }
+}
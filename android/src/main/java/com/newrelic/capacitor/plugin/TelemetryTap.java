@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.capacitor.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Records incoming plugin calls to a rotating set of memory-mapped segment files on the device,
+ * so real traffic can later be replayed in the lab (see {@link TelemetryReplay}).
+ * <pre>
+ *   segment  magic, version, sequence (long), records..., 0
+ *   record   length (int), timestamp (long), method length (byte), method, arguments (JSON)
+ * </pre>
+ * When a segment is full the tap moves on to the next file, overwriting the oldest one.
+ */
+public class TelemetryTap {
+
+    static final int MAGIC = 0x4E525450; // "NRTP"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int DEFAULT_SEGMENT_BYTES = 1024 * 1024;
+    static final int DEFAULT_SEGMENT_COUNT = 4;
+
+    public static class Record {
+        public final long timestamp;
+        public final String method;
+        public final String arguments;
+
+        public Record(long timestamp, String method, String arguments) {
+            this.timestamp = timestamp;
+            this.method = method;
+            this.arguments = arguments;
+        }
+    }
+
+    private final File dir;
+    private final int segmentBytes;
+    private final int segmentCount;
+
+    private MappedByteBuffer segment;
+    private long sequence;
+    private long dropped;
+
+    public TelemetryTap(File dir) {
+        this(dir, DEFAULT_SEGMENT_BYTES, DEFAULT_SEGMENT_COUNT);
+    }
+
+    public TelemetryTap(File dir, int segmentBytes, int segmentCount) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.segmentCount = segmentCount;
+    }
+
+    public File getDirectory() {
+        return dir;
+    }
+
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    public synchronized void record(String method, String arguments, long timestamp) {
+        byte[] methodBytes = method.getBytes(StandardCharsets.UTF_8);
+        byte[] argumentBytes = arguments != null ? arguments.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int length = 8 + 1 + methodBytes.length + argumentBytes.length;
+
+        // Each segment ends with a zero length marker
+        if (methodBytes.length > Byte.MAX_VALUE || 4 + length + 4 > segmentBytes - HEADER_BYTES) {
+            dropped++;
+            return;
+        }
+
+        try {
+            if (segment == null || segment.remaining() < 4 + length + 4) {
+                nextSegment();
+            }
+        } catch (IOException e) {
+            dropped++;
+            return;
+        }
+
+        segment.putInt(length);
+        segment.putLong(timestamp);
+        segment.put((byte) methodBytes.length);
+        segment.put(methodBytes);
+        segment.put(argumentBytes);
+        segment.putInt(segment.position(), 0);
+    }
+
+    private void nextSegment() throws IOException {
+        if (segment == null) {
+            sequence = latestSequence(dir) + 1;
+        } else {
+            segment.force();
+            sequence++;
+        }
+
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Unable to create " + dir);
+        }
+
+        File file = segmentFile(dir, (int) (sequence % segmentCount));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel channel = raf.getChannel()) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        segment.putInt(MAGIC);
+        segment.putInt(VERSION);
+        segment.putLong(sequence);
+        segment.putInt(segment.position(), 0);
+    }
+
+    public synchronized void close() {
+        if (segment != null) {
+            segment.force();
+            segment = null;
+        }
+    }
+
+    static File segmentFile(File dir, int index) {
+        return new File(dir, "segment-" + index + ".tap");
+    }
+
+    /**
+     * Reads back every record of the tap directory, oldest first.
+     */
+    public static List<Record> read(File dir) throws IOException {
+        File[] files = dir.listFiles((d, name) -> name.startsWith("segment-") && name.endsWith(".tap"));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+
+        List<long[]> order = new ArrayList<>();
+        for (int i = 0; i < files.length; i++) {
+            long fileSequence = readSequence(files[i]);
+            if (fileSequence >= 0) {
+                order.add(new long[]{fileSequence, i});
+            }
+        }
+        order.sort(Comparator.comparingLong(entry -> entry[0]));
+
+        List<Record> records = new ArrayList<>();
+        for (long[] entry : order) {
+            readSegment(files[(int) entry[1]], records);
+        }
+        return records;
+    }
+
+    private static long latestSequence(File dir) throws IOException {
+        File[] files = dir.listFiles((d, name) -> name.startsWith("segment-") && name.endsWith(".tap"));
+        long latest = -1;
+        if (files != null) {
+            for (File file : files) {
+                latest = Math.max(latest, readSequence(file));
+            }
+        }
+        return latest;
+    }
+
+    private static long readSequence(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.length() < HEADER_BYTES || raf.readInt() != MAGIC || raf.readInt() != VERSION) {
+                return -1;
+            }
+            return raf.readLong();
+        }
+    }
+
+    private static void readSegment(File file, List<Record> records) throws IOException {
+        MappedByteBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        buffer.position(HEADER_BYTES);
+        try {
+            while (buffer.remaining() >= 4) {
+                int length = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+                long timestamp = buffer.getLong();
+                byte[] method = new byte[buffer.get()];
+                buffer.get(method);
+                byte[] arguments = new byte[length - 8 - 1 - method.length];
+                buffer.get(arguments);
+                records.add(new Record(timestamp, new String(method, StandardCharsets.UTF_8),
+                        new String(arguments, StandardCharsets.UTF_8)));
+            }
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            // Truncated record at the end of a segment, e.g. after a crash
+        }
+    }
+}
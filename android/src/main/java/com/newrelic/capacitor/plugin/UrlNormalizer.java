@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.capacitor.plugin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Reduces the cardinality of URLs given to noticeHttpTransaction. Query strings can be stripped,
+ * ID-like path segments (numbers, UUIDs, long hex strings) replaced by placeholders, and
+ * host-specific rules rewrite paths with precompiled patterns. Once a host has reached its limit
+ * of distinct paths, any new path on that host is folded into "/other".
+ * <p>
+ * Results are memoized in a bounded LRU keyed by the raw URL.
+ */
+public class UrlNormalizer {
+
+    static final int MAX_CACHED_URLS = 512;
+    static final int DEFAULT_MAX_PATHS_PER_HOST = 200;
+    static final String OVERFLOW_PATH = "/other";
+
+    private static final Pattern NUMBER = Pattern.compile("^\\d+$");
+    private static final Pattern UUID = Pattern.compile(
+            "^[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$");
+    private static final Pattern HEX = Pattern.compile("^[0-9a-fA-F]{16,}$");
+
+    private static class Rule {
+        final String host;
+        final Pattern pattern;
+        final String replacement;
+
+        Rule(String host, Pattern pattern, String replacement) {
+            this.host = host;
+            this.pattern = pattern;
+            this.replacement = replacement;
+        }
+    }
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final Map<String, Set<String>> pathsPerHost = new HashMap<>();
+    private final Map<String, String> cache = new LinkedHashMap<String, String>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_CACHED_URLS;
+        }
+    };
+
+    private boolean enabled = false;
+    private boolean stripQuery = true;
+    private boolean replaceIds = true;
+    private int maxPathsPerHost = DEFAULT_MAX_PATHS_PER_HOST;
+
+    public synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        reset();
+    }
+
+    public synchronized void setStripQuery(boolean stripQuery) {
+        this.stripQuery = stripQuery;
+        reset();
+    }
+
+    public synchronized void setReplaceIds(boolean replaceIds) {
+        this.replaceIds = replaceIds;
+        reset();
+    }
+
+    /**
+     * Maximum number of distinct normalized paths per host, 0 for no limit.
+     */
+    public synchronized void setMaxPathsPerHost(int maxPathsPerHost) {
+        this.maxPathsPerHost = Math.max(0, maxPathsPerHost);
+        reset();
+    }
+
+    /**
+     * Adds a path rewrite, applied before ID replacement. A null host applies to every host.
+     *
+     * @throws java.util.regex.PatternSyntaxException if the pattern is not a valid regex
+     */
+    public synchronized void addRule(String host, String pattern, String replacement) {
+        rules.add(new Rule(host, Pattern.compile(pattern), replacement));
+        reset();
+    }
+
+    public synchronized void clearRules() {
+        rules.clear();
+        reset();
+    }
+
+    public synchronized String normalize(String url) {
+        if (!enabled || url == null) {
+            return url;
+        }
+
+        String normalized = cache.get(url);
+        if (normalized == null) {
+            normalized = doNormalize(url);
+            cache.put(url, normalized);
+        }
+        return normalized;
+    }
+
+    private String doNormalize(String url) {
+        int schemeEnd = url.indexOf("://");
+        int hostStart = schemeEnd >= 0 ? schemeEnd + 3 : 0;
+        int pathStart = url.indexOf('/', hostStart);
+        int queryStart = indexOfAny(url, hostStart, '?', '#');
+        if (pathStart < 0 || (queryStart >= 0 && queryStart < pathStart)) {
+            pathStart = queryStart >= 0 ? queryStart : url.length();
+        }
+
+        String origin = url.substring(0, pathStart);
+        String host = url.substring(hostStart, pathStart);
+        String path = queryStart >= 0 ? url.substring(pathStart, queryStart) : url.substring(pathStart);
+        String query = queryStart >= 0 && !stripQuery ? url.substring(queryStart) : "";
+
+        for (Rule rule : rules) {
+            if (rule.host == null || rule.host.equalsIgnoreCase(host)) {
+                path = rule.pattern.matcher(path).replaceAll(rule.replacement);
+            }
+        }
+
+        if (replaceIds) {
+            path = replaceIdSegments(path);
+        }
+
+        if (maxPathsPerHost > 0) {
+            Set<String> paths = pathsPerHost.get(host);
+            if (paths == null) {
+                paths = new HashSet<>();
+                pathsPerHost.put(host, paths);
+            }
+            if (!paths.contains(path)) {
+                if (paths.size() >= maxPathsPerHost) {
+                    return origin + OVERFLOW_PATH;
+                }
+                paths.add(path);
+            }
+        }
+
+        return origin + path + query;
+    }
+
+    static String replaceIdSegments(String path) {
+        String[] segments = path.split("/", -1);
+        boolean changed = false;
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (NUMBER.matcher(segment).matches()) {
+                segments[i] = "{id}";
+                changed = true;
+            } else if (UUID.matcher(segment).matches()) {
+                segments[i] = "{uuid}";
+                changed = true;
+            } else if (HEX.matcher(segment).matches()) {
+                segments[i] = "{hash}";
+                changed = true;
+            }
+        }
+        return changed ? String.join("/", segments) : path;
+    }
+
+    private static int indexOfAny(String value, int from, char first, char second) {
+        for (int i = from; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == first || c == second) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void reset() {
+        cache.clear();
+        pathsPerHost.clear();
+    }
+}
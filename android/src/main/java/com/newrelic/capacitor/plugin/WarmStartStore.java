@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.capacitor.plugin;
+
+import android.content.SharedPreferences;
+
+/**
+ * Persists the app key and agent configuration of the last start call, so the next launch can
+ * start the agent from {@code load()}, before the WebView and the JS bundle are loaded.
+ */
+public class WarmStartStore {
+
+    static final String PREFERENCES_NAME = "com.newrelic.capacitor.plugin.WarmStart";
+    static final String APP_KEY = "appKey";
+    static final String AGENT_CONFIGURATION = "agentConfiguration";
+
+    private final SharedPreferences preferences;
+
+    public WarmStartStore(SharedPreferences preferences) {
+        this.preferences = preferences;
+    }
+
+    public String getAppKey() {
+        return preferences.getString(APP_KEY, null);
+    }
+
+    /**
+     * The agent configuration as JSON, or null if start was called without one.
+     */
+    public String getAgentConfiguration() {
+        return preferences.getString(AGENT_CONFIGURATION, null);
+    }
+
+    public boolean matches(String appKey, String agentConfiguration) {
+        String storedConfiguration = getAgentConfiguration();
+        return appKey.equals(getAppKey()) && (agentConfiguration == null
+                ? storedConfiguration == null
+                : agentConfiguration.equals(storedConfiguration));
+    }
+
+    public void save(String appKey, String agentConfiguration) {
+        if (matches(appKey, agentConfiguration)) {
+            return;
+        }
+        preferences.edit()
+                .putString(APP_KEY, appKey)
+                .putString(AGENT_CONFIGURATION, agentConfiguration)
+                .apply();
+    }
+
+    public void clear() {
+        if (getAppKey() != null) {
+            preferences.edit().clear().apply();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.getcapacitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.newrelic.capacitor.plugin.AttributeMaps;
+import com.newrelic.capacitor.plugin.AttributeProjection;
+import com.newrelic.com.google.gson.Gson;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+
+public class AttributeMapsUnitTest {
+
+    final AttributeMaps attributeMaps = new AttributeMaps();
+
+    @Test
+    public void testFromJSON() throws JSONException {
+        Map<String, Object> map = attributeMaps.fromJSON(
+                new JSONObject("{'name': 'scroll', 'count': 3, 'ratio': 0.5, 'ok': true, 'nested': {'a': 1}, 'list': [1], 'none': null}"));
+
+        assertEquals(4, map.size());
+        assertEquals("scroll", map.get("name"));
+        assertEquals(3, map.get("count"));
+        assertEquals(0.5, ((Number) map.get("ratio")).doubleValue(), 0);
+        assertEquals(true, map.get("ok"));
+        assertFalse(map.containsKey("nested"));
+        assertFalse(map.containsKey("list"));
+        assertFalse(map.containsKey("none"));
+    }
+
+    @Test
+    public void testProjectionAllowlist() throws JSONException {
+        AttributeProjection.Rule rule = new AttributeProjection.Rule(new String[]{"sku", "price", "missing", "nested"},
+                Collections.singleton("price"), Collections.singletonMap("sku", "productId"));
+        Map<String, Object> map = attributeMaps.fromJSON(
+                new JSONObject("{'sku': 'A-1', 'price': 9.99, 'cart': 'big', 'nested': {'a': 1}}"), rule);
+
+        assertEquals(1, map.size());
+        assertEquals("A-1", map.get("productId"));
+    }
+
+    @Test
+    public void testProjectionDenylist() throws JSONException {
+        AttributeProjection.Rule rule = new AttributeProjection.Rule(null,
+                new HashSet<>(Arrays.asList("html", "token")), Collections.singletonMap("screen", "screenName"));
+        Map<String, Object> map = attributeMaps.fromJSON(
+                new JSONObject("{'screen': 'home', 'html': '<div/>', 'token': 'secret', 'count': 2}"), rule);
+
+        assertEquals(2, map.size());
+        assertEquals("home", map.get("screenName"));
+        assertEquals(2, map.get("count"));
+
+        AttributeProjection projection = new AttributeProjection();
+        projection.addRule("Checkout", rule);
+        assertSame(rule, projection.ruleFor("Checkout"));
+        assertNull(projection.ruleFor("Scroll"));
+        assertNull(projection.ruleFor(null));
+    }
+
+    @Test
+    public void testKeysAreInterned() throws JSONException {
+        Map<String, Object> first = attributeMaps.fromJSON(new JSONObject("{'screenName': 'home'}"));
+        String key = first.keySet().iterator().next();
+        attributeMaps.release(first);
+
+        Map<String, Object> second = attributeMaps.fromJSON(new JSONObject("{'screenName': 'home'}"));
+
+        assertSame(key, second.keySet().iterator().next());
+        assertSame(attributeMaps.intern("JS Errors"), attributeMaps.intern(new String("JS Errors")));
+    }
+
+    @Test
+    public void testMapsArePooled() {
+        Map<String, Object> map = attributeMaps.acquire();
+        map.put("key", "value");
+        attributeMaps.release(map);
+
+        Map<String, Object> reused = attributeMaps.acquire();
+        assertSame(map, reused);
+        assertTrue(reused.isEmpty());
+    }
+
+    @Test
+    public void testAllocationsPerEvent() throws JSONException {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        JSONObject attributes = new JSONObject("{'screenName': 'home', 'index': 3, 'visible': true, 'ratio': 0.25}");
+        int events = 10_000;
+        long threadId = Thread.currentThread().getId();
+
+        // Previous path: serialize the JS object and parse it back with the agent's Gson
+        for (int i = 0; i < 1_000; i++) {
+            new Gson().fromJson(String.valueOf(attributes), Map.class);
+        }
+        long start = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < events; i++) {
+            new Gson().fromJson(String.valueOf(attributes), Map.class);
+        }
+        long roundTripBytes = threads.getThreadAllocatedBytes(threadId) - start;
+
+        for (int i = 0; i < 1_000; i++) {
+            attributeMaps.release(attributeMaps.fromJSON(attributes));
+        }
+        start = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < events; i++) {
+            attributeMaps.release(attributeMaps.fromJSON(attributes));
+        }
+        long pooledBytes = threads.getThreadAllocatedBytes(threadId) - start;
+
+        assertTrue("pooled conversion allocated " + pooledBytes / events + " bytes per event",
+                pooledBytes * 4 < roundTripBytes);
+        assertTrue("pooled conversion allocated " + pooledBytes / events + " bytes per event",
+                pooledBytes / events < 512);
+    }
+}
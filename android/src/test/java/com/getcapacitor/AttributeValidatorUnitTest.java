@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.getcapacitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.newrelic.capacitor.plugin.AttributeValidator;
+import com.newrelic.capacitor.plugin.AttributeValidator.Violation;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class AttributeValidatorUnitTest {
+
+    final AttributeValidator validator = new AttributeValidator();
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void testDropsOrTrimsOffendingAttributes() {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("screen", "home");
+        attributes.put("timestamp", 12);
+        attributes.put("nr.guid", "x");
+        attributes.put(repeat('k', 257), "long name");
+        attributes.put("missing", null);
+        attributes.put("stack", repeat('s', 5000));
+
+        validator.validate(attributes);
+
+        assertEquals(2, attributes.size());
+        assertEquals("home", attributes.get("screen"));
+        assertEquals(4095, ((String) attributes.get("stack")).length());
+        assertEquals(2, validator.getViolationCount(Violation.RESERVED_NAME));
+        assertEquals(1, validator.getViolationCount(Violation.NAME_TOO_LONG));
+        assertEquals(1, validator.getViolationCount(Violation.NULL_VALUE));
+        assertEquals(1, validator.getViolationCount(Violation.VALUE_TRIMMED));
+    }
+
+    @Test
+    public void testAttributeCountLimit() {
+        Map<String, Object> attributes = new HashMap<>();
+        for (int i = 0; i < 150; i++) {
+            attributes.put("attr" + i, i);
+        }
+
+        validator.validate(attributes);
+
+        assertEquals(128, attributes.size());
+        assertEquals(22, validator.getViolationCount(Violation.TOO_MANY_ATTRIBUTES));
+    }
+
+    @Test
+    public void testEventType() {
+        assertTrue(validator.isValidEventType("consoleEvents"));
+        assertTrue(validator.isValidEventType("JS Errors"));
+        assertFalse(validator.isValidEventType("bad/type"));
+        assertFalse(validator.isValidEventType(""));
+        assertEquals(2, validator.getViolationCount(Violation.INVALID_EVENT_TYPE));
+    }
+}
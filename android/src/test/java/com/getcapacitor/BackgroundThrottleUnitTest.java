@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.getcapacitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.newrelic.capacitor.plugin.BackgroundThrottle;
+import com.newrelic.capacitor.plugin.BackgroundThrottle.Category;
+
+import org.junit.Test;
+
+public class BackgroundThrottleUnitTest {
+
+    final BackgroundThrottle throttle = new BackgroundThrottle();
+
+    @Test
+    public void testDisabledNeverThrottles() {
+        assertFalse(throttle.enterBackground(0));
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(throttle.allow(Category.CONSOLE));
+        }
+        assertEquals(0, throttle.getDroppedCount(Category.CONSOLE));
+    }
+
+    @Test
+    public void testDisableWhileBackgrounded() {
+        throttle.setEnabled(true);
+        throttle.setRate(Category.EVENT, 1);
+        long now = System.currentTimeMillis();
+        assertTrue(throttle.enterBackground(now));
+        assertTrue(throttle.allow(Category.EVENT, now));
+        assertFalse(throttle.allow(Category.EVENT, now));
+
+        throttle.setEnabled(false);
+
+        assertFalse(throttle.isBackground());
+        assertEquals(0, throttle.getDroppedCount(Category.EVENT));
+        for (int i = 0; i < 100; i++) {
+            assertTrue(throttle.allow(Category.EVENT, now));
+        }
+        // Stays off until enabled and backgrounded again
+        assertFalse(throttle.enterBackground(now));
+    }
+
+    @Test
+    public void testRatesPerCategory() {
+        throttle.setEnabled(true);
+        throttle.setRate(Category.METRIC, 5);
+        assertTrue(throttle.allow(Category.METRIC));
+
+        assertTrue(throttle.enterBackground(System.currentTimeMillis()));
+        assertFalse(throttle.enterBackground(System.currentTimeMillis()));
+
+        int allowed = 0;
+        for (int i = 0; i < 20; i++) {
+            if (throttle.allow(Category.METRIC)) {
+                allowed++;
+            }
+        }
+        assertEquals(5, allowed);
+        assertEquals(15, throttle.getDroppedCount(Category.METRIC));
+
+        // Console events are dropped entirely by default, custom events have their own budget
+        assertFalse(throttle.allow(Category.CONSOLE));
+        assertTrue(throttle.allow(Category.EVENT));
+
+        throttle.enterForeground();
+        assertFalse(throttle.isBackground());
+        assertTrue(throttle.allow(Category.METRIC));
+        assertTrue(throttle.allow(Category.CONSOLE));
+        assertEquals(0, throttle.getDroppedCount(Category.METRIC));
+    }
+
+    @Test
+    public void testBudgetRefillsEveryMinute() {
+        throttle.setEnabled(true);
+        throttle.setRate(Category.NETWORK, 1);
+        throttle.enterBackground(0);
+
+        assertTrue(throttle.allow(Category.NETWORK, 1_000));
+        assertFalse(throttle.allow(Category.NETWORK, 59_000));
+        assertTrue(throttle.allow(Category.NETWORK, 61_000));
+        assertFalse(throttle.allow(Category.NETWORK, 62_000));
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.getcapacitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.newrelic.capacitor.plugin.BreadcrumbBuffer;
+
+import org.json.JSONArray;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BreadcrumbBufferUnitTest {
+
+    final List<String> names = new ArrayList<>();
+    final List<Map<String, Object>> emitted = new ArrayList<>();
+
+    private BreadcrumbBuffer buffer(int capacity, boolean compact) {
+        return new BreadcrumbBuffer(capacity, compact, (name, attributes) -> {
+            names.add(name);
+            emitted.add(attributes);
+        });
+    }
+
+    private static Map<String, Object> attributes(int index) {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("index", index);
+        attributes.put("screen", "home");
+        return attributes;
+    }
+
+    @Test
+    public void testNothingEmittedUntilFlush() {
+        BreadcrumbBuffer buffer = buffer(4, false);
+        buffer.add("tap", attributes(0), 1000);
+        buffer.add("tap", attributes(1), 1001);
+
+        assertTrue(emitted.isEmpty());
+        assertEquals(2, buffer.size());
+
+        assertEquals(2, buffer.flush());
+        assertEquals(2, emitted.size());
+        assertEquals(0, emitted.get(0).get("index"));
+        assertEquals(1000L, emitted.get(0).get("breadcrumbTimestamp"));
+        assertEquals("home", emitted.get(1).get("screen"));
+        assertEquals(0, buffer.size());
+        assertEquals(0, buffer.flush());
+    }
+
+    @Test
+    public void testOverwritesOldest() {
+        BreadcrumbBuffer buffer = buffer(3, false);
+        for (int i = 0; i < 10; i++) {
+            buffer.add("tap" + i, attributes(i), i);
+        }
+
+        assertEquals(3, buffer.flush());
+        assertEquals("tap7", names.get(0));
+        assertEquals("tap8", names.get(1));
+        assertEquals("tap9", names.get(2));
+        assertEquals(9, emitted.get(2).get("index"));
+    }
+
+    @Test
+    public void testSlotReuseDropsStaleAttributes() {
+        BreadcrumbBuffer buffer = buffer(1, false);
+        buffer.add("first", attributes(0), 0);
+        Map<String, Object> single = new HashMap<>();
+        single.put("only", true);
+        buffer.add("second", single, 1);
+
+        buffer.flush();
+        assertEquals(1, emitted.size());
+        assertEquals(2, emitted.get(0).size());
+        assertEquals(true, emitted.get(0).get("only"));
+    }
+
+    @Test
+    public void testCompact() throws Exception {
+        BreadcrumbBuffer buffer = buffer(8, true);
+        for (int i = 0; i < 10; i++) {
+            buffer.add("tap", attributes(i), i);
+        }
+
+        assertEquals(8, buffer.flush());
+        assertEquals(1, emitted.size());
+        assertEquals("Breadcrumbs", names.get(0));
+
+        Map<String, Object> compact = emitted.get(0);
+        JSONArray breadcrumbs = new JSONArray((String) compact.get("breadcrumbs"));
+        assertEquals(8, breadcrumbs.length());
+        assertEquals(8, compact.get("breadcrumbCount"));
+        assertEquals(2L, compact.get("droppedBreadcrumbs"));
+        assertEquals(2, breadcrumbs.getJSONObject(0).getLong("timestamp"));
+        assertEquals(9, breadcrumbs.getJSONObject(7).getJSONObject("attributes").getInt("index"));
+    }
+
+    @Test
+    public void testCompactKeepsNewestWithinValueLimit() throws Exception {
+        BreadcrumbBuffer buffer = buffer(100, true);
+        Map<String, Object> large = new HashMap<>();
+        large.put("text", new String(new char[500]).replace('\0', 'x'));
+        for (int i = 0; i < 100; i++) {
+            buffer.add("log" + i, large, i);
+        }
+
+        buffer.flush();
+        String json = (String) emitted.get(0).get("breadcrumbs");
+        assertTrue(json.length() < 4096);
+        JSONArray breadcrumbs = new JSONArray(json);
+        assertEquals("log99", breadcrumbs.getJSONObject(breadcrumbs.length() - 1).getString("name"));
+        assertEquals(100L - breadcrumbs.length(), emitted.get(0).get("droppedBreadcrumbs"));
+    }
+
+    @Test
+    public void testNoAllocationOnceFull() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        BreadcrumbBuffer buffer = buffer(64, false);
+        Map<String, Object> attributes = attributes(1);
+        for (int i = 0; i < 100_000; i++) {
+            buffer.add("tap", attributes, 0);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        int breadcrumbs = 100_000;
+        long start = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < breadcrumbs; i++) {
+            buffer.add("tap", attributes, 0);
+        }
+        long bytes = threads.getThreadAllocatedBytes(threadId) - start;
+
+        assertTrue("buffering allocated " + bytes / breadcrumbs + " bytes per breadcrumb", bytes / breadcrumbs < 8);
+    }
+}
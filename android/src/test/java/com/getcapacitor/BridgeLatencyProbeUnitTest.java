@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.getcapacitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.newrelic.capacitor.plugin.BridgeLatencyProbe;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class BridgeLatencyProbeUnitTest {
+
+    final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    final BridgeLatencyProbe probe = new BridgeLatencyProbe();
+
+    @After
+    public void tearDown() {
+        probe.stop();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testDisabledProbeIgnoresCalls() {
+        PluginCall call = mock(PluginCall.class);
+
+        assertEquals(0, probe.received(call));
+        assertEquals(0, probe.nextPingInterval());
+        verify(call, never()).getLong("sentAt");
+    }
+
+    @Test
+    public void testPingBacksOffUnderRealTraffic() {
+        probe.start(scheduler);
+        assertEquals(30_000, probe.nextPingInterval());
+
+        for (int i = 0; i < 10; i++) {
+            PluginCall call = mock(PluginCall.class);
+            when(call.getMethodName()).thenReturn("recordCustomEvent");
+            when(call.getLong("sentAt")).thenReturn(System.currentTimeMillis());
+            long received = probe.received(call);
+            assertTrue(received > 0);
+            probe.handled(call, received);
+        }
+
+        assertEquals(120_000, probe.nextPingInterval());
+    }
+
+    @Test
+    public void testPingSpeedsUpWhenCongested() {
+        probe.start(scheduler);
+
+        PluginCall ping = mock(PluginCall.class);
+        when(ping.getMethodName()).thenReturn("ping");
+        when(ping.getLong("sentAt")).thenReturn(System.currentTimeMillis() - 1_000);
+        probe.handled(ping, probe.received(ping));
+
+        assertEquals(5_000, probe.nextPingInterval());
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.getcapacitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.newrelic.agent.android.metric.MetricUnit;
+import com.newrelic.capacitor.plugin.DistributionRecorder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DistributionRecorderUnitTest {
+
+    final List<DistributionRecorder.Summary> summaries = new ArrayList<>();
+    final DistributionRecorder recorder = new DistributionRecorder((summary, reporting) -> summaries.add(summary));
+
+    @Test
+    public void testFlushReportsSummary() {
+        for (int i = 1; i <= 100; i++) {
+            recorder.record("Checkout", "CartSize", i, MetricUnit.BYTES);
+        }
+        recorder.record("Checkout", "Latency", 250, null);
+
+        recorder.flush();
+        assertEquals(2, summaries.size());
+        DistributionRecorder.Summary cartSize = summaries.get(0).name.equals("CartSize") ? summaries.get(0) : summaries.get(1);
+        assertEquals("Checkout", cartSize.category);
+        assertEquals(MetricUnit.BYTES, cartSize.valueUnit);
+        assertEquals(100, cartSize.count);
+        assertEquals(5050, cartSize.sum, 0);
+        assertEquals(50, cartSize.p50, 1);
+        assertEquals(99, cartSize.p99, 1);
+        assertEquals(100, cartSize.max, 0);
+
+        summaries.clear();
+        recorder.flush();
+        assertTrue(summaries.isEmpty());
+    }
+
+    @Test
+    public void testDistributionCap() {
+        for (int i = 0; i < 200; i++) {
+            assertTrue(recorder.record("Category", "Name" + i, 1, null));
+        }
+        assertFalse(recorder.record("Category", "OneTooMany", 1, null));
+        assertTrue(recorder.record("Category", "Name0", 2, null));
+        assertEquals(1, recorder.getRejectedCount());
+    }
+}
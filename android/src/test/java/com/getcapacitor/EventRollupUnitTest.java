@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.getcapacitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.newrelic.capacitor.plugin.AttributeValidator;
+import com.newrelic.capacitor.plugin.EventRollup;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class EventRollupUnitTest {
+
+    final List<Map<String, Object>> emitted = new ArrayList<>();
+    final AttributeValidator validator = new AttributeValidator();
+    final EventRollup rollup = new EventRollup((eventType, name, attributes) -> {
+        assertEquals("Scroll", eventType);
+        emitted.add(attributes);
+    }, validator);
+
+    private static Map<String, Object> event(String screen, double depth) {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("screen", screen);
+        attributes.put("depth", depth);
+        attributes.put("label", "ignored");
+        return attributes;
+    }
+
+    @Test
+    public void testEventTypeWithoutRule() {
+        assertFalse(rollup.record("Scroll", event("home", 1)));
+    }
+
+    @Test
+    public void testWideSummaryValidated() {
+        rollup.addRule("Scroll", new String[]{"screen"}, 60);
+        Map<String, Object> attributes = event("home", 1);
+        for (int i = 0; i < 60; i++) {
+            attributes.put("metric" + i, i);
+        }
+        rollup.record("Scroll", attributes);
+        rollup.flush();
+
+        Map<String, Object> summary = emitted.get(0);
+        assertEquals(128, summary.size());
+        assertEquals("home", summary.get("screen"));
+        assertEquals(1L, summary.get("count"));
+        assertEquals(60L, summary.get("rollupWindowSeconds"));
+        assertTrue(validator.getViolationCount(AttributeValidator.Violation.TOO_MANY_ATTRIBUTES) > 0);
+    }
+
+    @Test
+    public void testSummaryPerDimensionTuple() {
+        rollup.addRule("Scroll", new String[]{"screen"}, 60);
+
+        assertTrue(rollup.record("Scroll", event("home", 10)));
+        assertTrue(rollup.record("Scroll", event("home", 30)));
+        assertTrue(rollup.record("Scroll", event("home", 20)));
+        assertTrue(rollup.record("Scroll", event("cart", 5)));
+        assertTrue(emitted.isEmpty());
+
+        rollup.flush();
+
+        assertEquals(2, emitted.size());
+        Map<String, Object> home = "home".equals(emitted.get(0).get("screen")) ? emitted.get(0) : emitted.get(1);
+        assertEquals(3L, home.get("count"));
+        assertEquals(60.0, home.get("depth.sum"));
+        assertEquals(10.0, home.get("depth.min"));
+        assertEquals(30.0, home.get("depth.max"));
+        assertEquals(60L, home.get("rollupWindowSeconds"));
+        assertFalse(home.containsKey("label"));
+
+        // Windows are emitted once
+        emitted.clear();
+        rollup.flush();
+        assertTrue(emitted.isEmpty());
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.getcapacitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.newrelic.capacitor.plugin.FrameMonitor;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+public class FrameMonitorUnitTest {
+
+    static final long MS = 1_000_000;
+
+    final Map<String, Object[]> reports = new HashMap<>();
+    final FrameMonitor monitor = new FrameMonitor((scope, frames, totalSeconds, jank, frozen, p95Seconds) ->
+            reports.put(scope, new Object[]{frames, totalSeconds, jank, frozen, p95Seconds}));
+
+    private long frames(long time, int count, double durationMs) {
+        for (int i = 0; i < count; i++) {
+            time += (long) (durationMs * MS);
+            monitor.record(time);
+        }
+        return time;
+    }
+
+    @Test
+    public void testFrameCounts() {
+        long time = 1000 * MS;
+        monitor.record(time);
+        time = frames(time, 95, 16);
+        time = frames(time, 4, 40);
+        frames(time, 1, 800);
+
+        monitor.flush();
+        Object[] app = reports.get("App");
+        assertEquals(100L, app[0]);
+        assertEquals((95 * 16 + 4 * 40 + 800) / 1000.0, (double) app[1], 0.0001);
+        assertEquals(4L, app[2]);
+        assertEquals(1L, app[3]);
+        // 95% of frames took at most one refresh period at 60Hz
+        assertEquals(1 / 60.0, (double) app[4], 0.0001);
+
+        reports.clear();
+        monitor.flush();
+        assertTrue(reports.isEmpty());
+    }
+
+    @Test
+    public void testSixtyHertzCadence() {
+        long time = 1000 * MS;
+        monitor.record(time);
+        time = frames(time, 95, 1000 / 60.0);
+        frames(time, 5, 2000 / 60.0);
+
+        monitor.flush();
+        Object[] app = reports.get("App");
+        assertEquals(100L, app[0]);
+        // Only the frames that missed a vsync are janky
+        assertEquals(5L, app[2]);
+        assertEquals(1 / 60.0, (double) app[4], 0.0001);
+    }
+
+    @Test
+    public void testHundredTwentyHertzCadence() {
+        monitor.setRefreshRate(120);
+        long time = 1000 * MS;
+        monitor.record(time);
+        time = frames(time, 90, 1000 / 120.0);
+        frames(time, 10, 1000 / 60.0);
+
+        monitor.flush();
+        Object[] app = reports.get("App");
+        assertEquals(100L, app[0]);
+        // A 60Hz frame misses a vsync at 120Hz
+        assertEquals(10L, app[2]);
+        assertEquals(2 / 120.0, (double) app[4], 0.0001);
+    }
+
+    @Test
+    public void testScopes() {
+        long time = 1000 * MS;
+        monitor.record(time);
+        time = frames(time, 10, 16);
+
+        monitor.enterScope("id1", "CheckoutScreen");
+        time = frames(time, 5, 50);
+        monitor.exitScope("other");
+        time = frames(time, 5, 50);
+        monitor.exitScope("id1");
+        frames(time, 2, 16);
+
+        monitor.flush();
+        assertEquals(12L, reports.get("App")[0]);
+        assertEquals(10L, reports.get("CheckoutScreen")[0]);
+        assertEquals(10L, reports.get("CheckoutScreen")[2]);
+    }
+
+    @Test
+    public void testScopeLimit() {
+        for (int i = 0; i < 100; i++) {
+            monitor.enterScope("id" + i, "Screen" + i);
+            monitor.record((i * 2 + 1) * 16 * MS);
+            monitor.record((i * 2 + 2) * 16 * MS);
+        }
+
+        monitor.flush();
+        assertTrue(reports.size() <= 51);
+        assertTrue(reports.containsKey("Other"));
+    }
+
+    @Test
+    public void testPauseDoesNotCountFrozenFrame() {
+        long time = 1000 * MS;
+        monitor.record(time);
+        time = frames(time, 10, 16);
+
+        monitor.pause();
+        assertFalse(monitor.record(time + 5000 * MS));
+        monitor.resume();
+        time += 60_000 * MS;
+        monitor.record(time);
+        frames(time, 10, 16);
+
+        monitor.flush();
+        assertEquals(20L, reports.get("App")[0]);
+        assertEquals(0L, reports.get("App")[3]);
+    }
+
+    @Test
+    public void testNoAllocationPerFrame() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        long time = frames(MS, 100_000, 16);
+        long threadId = Thread.currentThread().getId();
+        long start = threads.getThreadAllocatedBytes(threadId);
+        frames(time, 100_000, 16);
+        long bytes = threads.getThreadAllocatedBytes(threadId) - start;
+
+        assertTrue("frame monitor allocated " + bytes / 100_000 + " bytes per frame", bytes / 100_000 < 1);
+    }
+}
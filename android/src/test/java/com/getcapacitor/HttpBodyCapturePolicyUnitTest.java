@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.getcapacitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.newrelic.capacitor.plugin.HttpBodyCapturePolicy;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class HttpBodyCapturePolicyUnitTest {
+
+    final HttpBodyCapturePolicy policy = new HttpBodyCapturePolicy();
+
+    @Test
+    public void testErrorsOnly() {
+        assertNull(policy.apply(200, "ok"));
+        assertEquals("not found", policy.apply(404, "not found"));
+
+        policy.setErrorsOnly(false);
+        assertEquals("ok", policy.apply(200, "ok"));
+    }
+
+    @Test
+    public void testDisabled() {
+        policy.setEnabled(false);
+        assertNull(policy.apply(500, "error"));
+    }
+
+    @Test
+    public void testTruncatesOnUtf8Boundaries() {
+        policy.setMaxBytes(5);
+
+        assertEquals("abcde", policy.apply(500, "abcdefgh"));
+        // U+00E9 is 2 bytes, so the third one does not fit
+        assertEquals("\u00e9\u00e9", policy.apply(500, "\u00e9\u00e9\u00e9"));
+        // U+1F600 is a surrogate pair encoded as 4 bytes
+        assertEquals("a\ud83d\ude00", policy.apply(500, "a\ud83d\ude00\ud83d\ude00"));
+
+        String body = policy.apply(500, "\u20ac\u20ac\u20ac\u20ac\u20ac\u20ac");
+        assertTrue(body.getBytes(StandardCharsets.UTF_8).length <= 5);
+        assertEquals("\u20ac", body);
+
+        policy.setMaxBytes(0);
+        assertEquals("abcdefgh", policy.apply(500, "abcdefgh"));
+    }
+
+    @Test
+    public void testHash() {
+        policy.setHashEnabled(true);
+
+        assertEquals("sha256:ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                policy.apply(500, "abc"));
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.getcapacitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.newrelic.capacitor.plugin.BackgroundThrottle;
+import com.newrelic.capacitor.plugin.IdempotencyFilter;
+
+import org.junit.Test;
+
+public class IdempotencyFilterUnitTest {
+
+    /**
+     * Returns true if the call was recorded, in the order the plugin checks and remembers keys.
+     */
+    private static boolean record(IdempotencyFilter filter, BackgroundThrottle throttle, String key, long now) {
+        if (filter.contains(key, now)) {
+            return false;
+        }
+        if (!throttle.allow(BackgroundThrottle.Category.EVENT, now)) {
+            return false;
+        }
+        filter.add(key, now);
+        return true;
+    }
+
+    private static boolean record(IdempotencyFilter filter, String key, long now) {
+        return record(filter, new BackgroundThrottle(), key, now);
+    }
+
+    @Test
+    public void testRetriesAreDuplicates() {
+        IdempotencyFilter filter = new IdempotencyFilter();
+        assertTrue(record(filter, "event-1", 0));
+        assertTrue(record(filter, "event-2", 0));
+        assertFalse(record(filter, "event-1", 1_000));
+        assertFalse(record(filter, "event-2", 2_000));
+        assertEquals(2, filter.getDuplicateCount());
+    }
+
+    @Test
+    public void testThrottledAttemptCanBeRetried() {
+        IdempotencyFilter filter = new IdempotencyFilter();
+        BackgroundThrottle throttle = new BackgroundThrottle();
+        throttle.setEnabled(true);
+        throttle.setRate(BackgroundThrottle.Category.EVENT, 0);
+        throttle.enterBackground(0);
+
+        assertFalse(record(filter, throttle, "event-1", 1_000));
+        assertFalse(filter.contains("event-1", 1_000));
+
+        // Back in the foreground, the retry is recorded once
+        throttle.enterForeground();
+        assertTrue(record(filter, throttle, "event-1", 2_000));
+        assertFalse(record(filter, throttle, "event-1", 3_000));
+    }
+
+    @Test
+    public void testKeysExpireAfterTwoWindows() {
+        IdempotencyFilter filter = new IdempotencyFilter(100, 60_000);
+        assertTrue(record(filter, "event-1", 0));
+
+        // Still remembered in the previous generation
+        assertFalse(record(filter, "event-1", 61_000));
+        assertTrue(record(filter, "event-2", 61_000));
+
+        assertTrue(record(filter, "event-1", 122_000));
+        assertFalse(record(filter, "event-2", 122_000));
+    }
+
+    @Test
+    public void testFalsePositiveRate() {
+        IdempotencyFilter filter = new IdempotencyFilter(10_000, Long.MAX_VALUE);
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(record(filter, "7d9f4c1e-" + i, 0));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertFalse(record(filter, "7d9f4c1e-" + i, 0));
+        }
+
+        // Capacity is reached, keys keep being accepted in a new generation
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (!record(filter, "b2a03f55-" + i, 0)) {
+                falsePositives++;
+            }
+        }
+        assertTrue("false positives: " + falsePositives, falsePositives < 50);
+    }
+}
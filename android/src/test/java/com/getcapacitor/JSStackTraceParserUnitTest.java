@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.getcapacitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.newrelic.capacitor.plugin.JSErrorException;
+import com.newrelic.capacitor.plugin.JSStackTraceParser;
+
+import org.junit.Test;
+
+public class JSStackTraceParserUnitTest {
+
+    final JSStackTraceParser parser = new JSStackTraceParser();
+
+    @Test
+    public void testParseV8Stack() {
+        String stack = "TypeError: Cannot read properties of undefined (reading 'x')\n" +
+                "    at HomePage.onClick (http://localhost/main.js:120:15)\n" +
+                "    at new Foo (http://localhost/vendor.js?v=2:3:7)\n" +
+                "    at async load (http://localhost/main.js:40:1)\n" +
+                "    at http://localhost/polyfills.js:9:30\n" +
+                "    at eval (eval at compile (http://localhost/main.js:5:2), <anonymous>:1:1)";
+
+        StackTraceElement[] frames = parser.parse(stack);
+
+        assertEquals(5, frames.length);
+        assertEquals("HomePage", frames[0].getClassName());
+        assertEquals("onClick", frames[0].getMethodName());
+        assertEquals("http://localhost/main.js", frames[0].getFileName());
+        assertEquals(120, frames[0].getLineNumber());
+
+        assertEquals("vendor.js", frames[1].getClassName());
+        assertEquals("Foo", frames[1].getMethodName());
+
+        assertEquals("load", frames[2].getMethodName());
+        assertEquals(40, frames[2].getLineNumber());
+
+        assertEquals("polyfills.js", frames[3].getClassName());
+        assertEquals("<anonymous>", frames[3].getMethodName());
+        assertEquals(9, frames[3].getLineNumber());
+
+        assertEquals("eval", frames[4].getMethodName());
+        assertEquals("http://localhost/main.js", frames[4].getFileName());
+        assertEquals(5, frames[4].getLineNumber());
+    }
+
+    @Test
+    public void testColumns() {
+        JSStackTraceParser.ParsedStack first = parser.parseStack("Error: a\n    at t (http://localhost/main.js:1:3480)");
+        JSStackTraceParser.ParsedStack second = parser.parseStack("Error: b\n    at t (http://localhost/main.js:1:91822)");
+
+        assertEquals(3480, first.topColumn());
+        assertEquals(91822, second.topColumn());
+        assertEquals("http://localhost/main.js", first.frames[0].getFileName());
+        assertEquals(1, first.frames[0].getLineNumber());
+        assertEquals(-1, parser.parseStack("Error: c\n    at t (http://localhost/main.js)").topColumn());
+        assertEquals(-1, parser.parseStack("no stack").topColumn());
+    }
+
+    @Test
+    public void testErrorNameInMessage() {
+        StackTraceElement[] frames = parser.parse("TypeError: boom\n    at HomePage.onClick (http://localhost/main.js:1:15)");
+
+        JSErrorException error = new JSErrorException("TypeError", "boom", frames);
+
+        assertEquals("TypeError: boom", error.getMessage());
+        assertEquals("TypeError", error.getName());
+        assertEquals("HomePage", error.getStackTrace()[0].getClassName());
+        assertEquals("http://localhost/main.js", error.getStackTrace()[0].getFileName());
+    }
+
+    @Test
+    public void testParseUnknownStack() {
+        assertEquals(0, parser.parse("no stack").length);
+        assertEquals(0, parser.parse("").length);
+        assertEquals(0, parser.parse(null).length);
+    }
+
+    @Test
+    public void testParseIsCached() {
+        String stack = "Error: boom\n    at f (http://localhost/main.js:1:2)";
+
+        assertSame(parser.parse(stack), parser.parse(stack));
+    }
+}
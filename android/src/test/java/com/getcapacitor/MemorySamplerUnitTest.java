@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.getcapacitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.newrelic.capacitor.plugin.MemorySampler;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class MemorySamplerUnitTest {
+
+    static final long MB = 1024 * 1024;
+
+    long javaHeap = 10 * MB;
+    long nativeHeap = 20 * MB;
+    long gcCount = 100;
+    long gcTimeMs = 500;
+
+    final Map<String, double[]> gauges = new HashMap<>();
+    final Map<String, Double> counters = new HashMap<>();
+
+    final MemorySampler sampler = new MemorySampler(new MemorySampler.Source() {
+        @Override
+        public long javaHeapUsed() {
+            return javaHeap;
+        }
+
+        @Override
+        public long nativeHeapUsed() {
+            return nativeHeap;
+        }
+
+        @Override
+        public long totalPss() {
+            return 50 * MB;
+        }
+
+        @Override
+        public long gcCount() {
+            return gcCount;
+        }
+
+        @Override
+        public long gcTimeMs() {
+            return gcTimeMs;
+        }
+    }, new MemorySampler.Reporter() {
+        @Override
+        public void gauge(String name, long count, double sum, double min, double max) {
+            gauges.put(name, new double[]{count, sum, min, max});
+        }
+
+        @Override
+        public void counter(String name, double value) {
+            counters.put(name, value);
+        }
+    });
+
+    @Test
+    public void testAggregatesPerHarvest() {
+        sampler.report();
+        assertTrue(counters.isEmpty());
+
+        sampler.sample();
+        javaHeap = 30 * MB;
+        sampler.sample();
+        javaHeap = 20 * MB;
+        sampler.sample();
+        gcCount = 104;
+        gcTimeMs = 750;
+
+        sampler.report();
+        double[] java = gauges.get("JavaHeapUsed");
+        assertEquals(3, java[0], 0);
+        assertEquals(60 * MB, java[1], 0);
+        assertEquals(10 * MB, java[2], 0);
+        assertEquals(30 * MB, java[3], 0);
+        assertEquals(3, gauges.get("NativeHeapUsed")[0], 0);
+        assertEquals(1, gauges.get("TotalPss")[0], 0);
+        assertEquals(4, counters.get("GC/Count"), 0);
+        assertEquals(0.25, counters.get("GC/Time"), 0.0001);
+
+        gauges.clear();
+        sampler.report();
+        assertFalse(gauges.containsKey("JavaHeapUsed"));
+    }
+
+    @Test
+    public void testIntervalAdapts() {
+        sampler.sample();
+        long base = sampler.getInterval();
+
+        // Stable memory samples less often
+        sampler.sample();
+        sampler.sample();
+        assertTrue(sampler.getInterval() > base);
+
+        for (int i = 0; i < 10; i++) {
+            sampler.sample();
+        }
+        assertEquals(60_000, sampler.getInterval());
+
+        // Quickly changing memory samples more often
+        for (int i = 0; i < 10; i++) {
+            javaHeap += 16 * MB;
+            sampler.sample();
+        }
+        assertEquals(2_000, sampler.getInterval());
+    }
+
+    @Test
+    public void testUnavailableValuesSkipped() {
+        nativeHeap = -1;
+        gcCount = -1;
+        sampler.sample();
+        sampler.report();
+        sampler.report();
+
+        assertFalse(gauges.containsKey("NativeHeapUsed"));
+        assertTrue(gauges.containsKey("JavaHeapUsed"));
+        assertFalse(counters.containsKey("GC/Count"));
+    }
+}
@@ -317,6 +317,34 @@ public class NewRelicCapacitorPluginUnitTest {
         verify(callWithBadMetricUnit2, times(1)).reject(Mockito.anyString());
     }
 
+    @Test
+    public void testRecordDistribution() {
+        PluginCall callWithGoodParams = mock(PluginCall.class);
+        when(callWithGoodParams.getString("name")).thenReturn("fakeDistributionName");
+        when(callWithGoodParams.getString("category")).thenReturn("fakeDistributionCategory");
+        when(callWithGoodParams.getDouble("value")).thenReturn(12.0);
+        when(callWithGoodParams.getString("valueUnit")).thenReturn("SECONDS");
+
+        PluginCall callWithNoValue = mock(PluginCall.class);
+        when(callWithNoValue.getString("name")).thenReturn("fakeDistributionName");
+        when(callWithNoValue.getString("category")).thenReturn("fakeDistributionCategory");
+        when(callWithNoValue.getDouble("value")).thenReturn(null);
+
+        PluginCall callWithBadValueUnit = mock(PluginCall.class);
+        when(callWithBadValueUnit.getString("name")).thenReturn("fakeDistributionName");
+        when(callWithBadValueUnit.getString("category")).thenReturn("fakeDistributionCategory");
+        when(callWithBadValueUnit.getDouble("value")).thenReturn(12.0);
+        when(callWithBadValueUnit.getString("valueUnit")).thenReturn("METRIC");
+
+        plugin.recordDistribution(callWithGoodParams);
+        plugin.recordDistribution(callWithNoValue);
+        plugin.recordDistribution(callWithBadValueUnit);
+
+        verify(callWithGoodParams, times(1)).resolve();
+        verify(callWithNoValue, times(1)).reject(Mockito.anyString());
+        verify(callWithBadValueUnit, times(1)).reject(Mockito.anyString());
+    }
+
 //    @Test
 //    public void testRemoveAllAttributes() {
 //        PluginCall callWithGoodParams = mock(PluginCall.class);
@@ -440,6 +468,23 @@ public class NewRelicCapacitorPluginUnitTest {
         verify(callWithNoParams, times(1)).reject(Mockito.anyString());
     }
 
+    @Test
+    public void testPing() {
+        PluginCall callWithGoodParams = mock(PluginCall.class);
+        when(callWithGoodParams.getLong("sentAt")).thenReturn(System.currentTimeMillis());
+
+        PluginCall callWithNoParams = mock(PluginCall.class);
+
+        plugin.ping(callWithGoodParams);
+        plugin.ping(callWithNoParams);
+
+        verify(callWithGoodParams, times(1)).resolve(Mockito.any(JSObject.class));
+        verify(callWithGoodParams, times(0)).reject(Mockito.anyString());
+
+        verify(callWithNoParams, times(1)).resolve(Mockito.any(JSObject.class));
+        verify(callWithNoParams, times(0)).reject(Mockito.anyString());
+    }
+
     @Test
     public void testHttpResponseBodyCaptureEnabled() {
         PluginCall callWithGoodParams = mock(PluginCall.class);
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.getcapacitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.newrelic.capacitor.plugin.QuantileSketch;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class QuantileSketchUnitTest {
+
+    private static void assertWithinAccuracy(double expected, double actual) {
+        assertEquals(expected, actual, expected * 0.0101);
+    }
+
+    @Test
+    public void testQuantilesWithinRelativeAccuracy() {
+        Random random = new Random(42);
+        double[] values = new double[10_000];
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(random.nextGaussian() * 2 + 5);
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double quantile : new double[]{0.1, 0.5, 0.9, 0.99}) {
+            double expected = values[(int) (quantile * (values.length - 1))];
+            assertWithinAccuracy(expected, sketch.quantile(quantile));
+        }
+        assertEquals(values.length, sketch.getCount());
+        assertEquals(values[0], sketch.getMin(), 0);
+        assertEquals(values[values.length - 1], sketch.getMax(), 0);
+    }
+
+    @Test
+    public void testMerge() {
+        QuantileSketch low = new QuantileSketch();
+        QuantileSketch high = new QuantileSketch();
+        for (int i = 1; i <= 500; i++) {
+            low.add(i);
+            high.add(i + 500);
+        }
+
+        low.merge(high);
+        assertEquals(1000, low.getCount());
+        assertEquals(500_500, low.getSum(), 0);
+        assertWithinAccuracy(500, low.quantile(0.5));
+        assertWithinAccuracy(990, low.quantile(0.99));
+        assertEquals(1000, low.getMax(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentAccuracy() {
+        new QuantileSketch().merge(new QuantileSketch(0.05, 100));
+    }
+
+    @Test
+    public void testBinsBounded() {
+        QuantileSketch sketch = new QuantileSketch(0.01, 100);
+        double value = 1e-6;
+        for (int i = 0; i < 100; i++) {
+            sketch.add(value);
+            value *= 1.5;
+        }
+
+        assertTrue(sketch.binCount() <= 100);
+        // Collapsing the lowest bins keeps the highest quantiles accurate
+        assertWithinAccuracy(sketch.getMax() / 1.5, sketch.quantile(0.99));
+    }
+
+    @Test
+    public void testZeroAndNegativeValues() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < 60; i++) {
+            sketch.add(0);
+        }
+        for (int i = 0; i < 40; i++) {
+            sketch.add(100);
+        }
+
+        assertEquals(0, sketch.quantile(0.5), 0);
+        assertWithinAccuracy(100, sketch.quantile(0.9));
+
+        sketch.clear();
+        assertEquals(0, sketch.getCount());
+        assertEquals(0, sketch.binCount());
+        assertEquals(0, sketch.quantile(0.5), 0);
+
+        sketch.add(-5);
+        sketch.add(10);
+        assertEquals(-5, sketch.getMin(), 0);
+        assertEquals(-5, sketch.quantile(0), 0);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.getcapacitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.newrelic.capacitor.plugin.JSStackTraceParser;
+import com.newrelic.capacitor.plugin.SourceMapSymbolicator;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SourceMapSymbolicatorUnitTest {
+
+    static final String SOURCE_MAP = "{\"version\":3,\"file\":\"main.js\",\"sourceRoot\":\"webpack:///\"," +
+            "\"sources\":[\"src/app.ts\"],\"names\":[\"handleClick\"],\"mappings\":\"AAAA;AACA,IAAIA\"}";
+
+    static final String STACK = "Error: boom\n" +
+            "    at a (http://localhost/main.js:2:6)\n" +
+            "    at http://localhost/vendor.js:1:1";
+
+    static final String MAIN_STACK = "Error: boom\n    at a (http://localhost/main.js:2:6)";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSymbolicate() throws Exception {
+        File indexDir = folder.newFolder();
+        JSStackTraceParser parser = new JSStackTraceParser();
+        parser.setSymbolicator(new SourceMapSymbolicator(file -> {
+            if ("main.js".equals(SourceMapSymbolicator.stripOrigin(file))) {
+                return new ByteArrayInputStream(SOURCE_MAP.getBytes(StandardCharsets.UTF_8));
+            }
+            throw new FileNotFoundException(file);
+        }, indexDir, "1"));
+
+        StackTraceElement[] frames = parser.parse(STACK);
+
+        assertEquals(2, frames.length);
+        assertEquals("handleClick", frames[0].getMethodName());
+        assertEquals("webpack:///src/app.ts", frames[0].getFileName());
+        assertEquals(2, frames[0].getLineNumber());
+
+        // No source map: frame is left as is
+        assertEquals("http://localhost/vendor.js", frames[1].getFileName());
+        assertEquals(1, frames[1].getLineNumber());
+
+        assertTrue(new File(indexDir, "main.js-1-v2.idx").exists());
+    }
+
+    @Test
+    public void testUnmappedSegment() throws Exception {
+        // Line 1: column 0 maps to src/app.ts, columns from 10 on are unmapped
+        String sourceMap = "{\"version\":3,\"sources\":[\"src/app.ts\"],\"names\":[],\"mappings\":\"AAAA,U\"}";
+        JSStackTraceParser parser = new JSStackTraceParser();
+        parser.setSymbolicator(new SourceMapSymbolicator(
+                file -> new ByteArrayInputStream(sourceMap.getBytes(StandardCharsets.UTF_8)), folder.newFolder(), "1"));
+
+        StackTraceElement[] frames = parser.parse("Error: boom\n" +
+                "    at a (http://localhost/main.js:1:5)\n" +
+                "    at b (http://localhost/main.js:1:12)");
+
+        assertEquals("src/app.ts", frames[0].getFileName());
+        assertEquals("http://localhost/main.js", frames[1].getFileName());
+        assertEquals("b", frames[1].getMethodName());
+    }
+
+    @Test
+    public void testStaleIndicesDeleted() throws Exception {
+        File indexDir = folder.newFolder();
+        File stale = new File(indexDir, "main.js-0-v2.idx");
+        File oldVersion = new File(indexDir, "main.js-1.idx");
+        File current = new File(indexDir, "main.js-1-v2.idx");
+        assertTrue(stale.createNewFile());
+        assertTrue(oldVersion.createNewFile());
+        assertTrue(current.createNewFile());
+
+        new SourceMapSymbolicator(file -> null, indexDir, "1");
+
+        assertFalse(stale.exists());
+        assertFalse(oldVersion.exists());
+        assertTrue(current.exists());
+    }
+
+    @Test
+    public void testIndexBuiltOnExecutor() throws Exception {
+        List<Runnable> builds = new ArrayList<>();
+        JSStackTraceParser parser = new JSStackTraceParser();
+        SourceMapSymbolicator symbolicator = new SourceMapSymbolicator(
+                file -> new ByteArrayInputStream(SOURCE_MAP.getBytes(StandardCharsets.UTF_8)),
+                folder.newFolder(), "1", builds::add);
+        parser.setSymbolicator(symbolicator);
+
+        // Not built yet: frames are reported as they are, and not cached
+        assertEquals("a", parser.parse(MAIN_STACK)[0].getMethodName());
+        assertEquals(1, builds.size());
+        assertEquals("a", parser.parse(MAIN_STACK)[0].getMethodName());
+        assertEquals(1, builds.size());
+
+        builds.get(0).run();
+        assertEquals("handleClick", parser.parse(MAIN_STACK)[0].getMethodName());
+    }
+
+    @Test
+    public void testPrepare() throws Exception {
+        List<Runnable> builds = new ArrayList<>();
+        SourceMapSymbolicator symbolicator = new SourceMapSymbolicator(
+                file -> new ByteArrayInputStream(SOURCE_MAP.getBytes(StandardCharsets.UTF_8)),
+                folder.newFolder(), "1", builds::add);
+        symbolicator.prepare("main.js");
+        builds.get(0).run();
+
+        JSStackTraceParser parser = new JSStackTraceParser();
+        parser.setSymbolicator(symbolicator);
+        assertEquals("handleClick", parser.parse(MAIN_STACK)[0].getMethodName());
+        assertEquals(1, builds.size());
+    }
+
+    @Test
+    public void testIndexIsReused() throws Exception {
+        File indexDir = folder.newFolder();
+        JSStackTraceParser firstLaunch = new JSStackTraceParser();
+        firstLaunch.setSymbolicator(new SourceMapSymbolicator(
+                file -> new ByteArrayInputStream(SOURCE_MAP.getBytes(StandardCharsets.UTF_8)), indexDir, "1"));
+        firstLaunch.parse(STACK);
+
+        // A later launch finds the index on disk and never opens the source map again
+        JSStackTraceParser parser = new JSStackTraceParser();
+        parser.setSymbolicator(new SourceMapSymbolicator(file -> {
+            throw new FileNotFoundException(file);
+        }, indexDir, "1"));
+
+        assertEquals("handleClick", parser.parse(STACK)[0].getMethodName());
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.getcapacitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.newrelic.capacitor.plugin.SpanTracker;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SpanTrackerUnitTest {
+
+    final AtomicLong clock = new AtomicLong();
+    final List<Object[]> metrics = new ArrayList<>();
+    final List<Map<String, Object>> events = new ArrayList<>();
+
+    final SpanTracker.Reporter reporter = new SpanTracker.Reporter() {
+        @Override
+        public void metric(String name, long count, double totalSeconds, double exclusiveSeconds, double maxSeconds) {
+            metrics.add(new Object[]{name, count, totalSeconds, exclusiveSeconds, maxSeconds});
+        }
+
+        @Override
+        public void event(String name, Map<String, Object> attributes) {
+            attributes.put("name", name);
+            events.add(attributes);
+        }
+    };
+
+    private SpanTracker tracker(int maxOpenSpans) {
+        return new SpanTracker(maxOpenSpans, clock::get, reporter);
+    }
+
+    @Test
+    public void testDuration() {
+        SpanTracker tracker = tracker(8);
+        clock.set(1_000_000);
+        SpanTracker.Span span = tracker.start("render", 0);
+        clock.set(3_500_000);
+
+        SpanTracker.Span ended = tracker.end(span.id);
+        assertEquals(2.5, ended.durationMs(), 0.0001);
+        assertEquals(0, tracker.openCount());
+        assertNull(tracker.end(span.id));
+    }
+
+    @Test
+    public void testNestedSpansAggregated() {
+        SpanTracker tracker = tracker(8);
+        SpanTracker.Span parent = tracker.start("load", 0);
+        clock.addAndGet(1_000_000_000);
+        SpanTracker.Span child = tracker.start("parse", parent.id);
+        clock.addAndGet(3_000_000_000L);
+        tracker.report(tracker.end(child.id));
+        clock.addAndGet(1_000_000_000);
+        tracker.report(tracker.end(parent.id));
+
+        tracker.flush();
+        assertEquals(2, metrics.size());
+        for (Object[] metric : metrics) {
+            if ("load".equals(metric[0])) {
+                assertEquals(1L, metric[1]);
+                assertEquals(5.0, (double) metric[2], 0.0001);
+                assertEquals(2.0, (double) metric[3], 0.0001);
+            } else {
+                assertEquals("parse", metric[0]);
+                assertEquals(3.0, (double) metric[2], 0.0001);
+                assertEquals(3.0, (double) metric[3], 0.0001);
+            }
+        }
+
+        metrics.clear();
+        tracker.flush();
+        assertTrue(metrics.isEmpty());
+    }
+
+    @Test
+    public void testAggregatesPerName() {
+        SpanTracker tracker = tracker(8);
+        for (int i = 1; i <= 3; i++) {
+            SpanTracker.Span span = tracker.start("fetch", 0);
+            clock.addAndGet(i * 1_000_000_000L);
+            tracker.report(tracker.end(span.id));
+        }
+
+        tracker.flush();
+        assertEquals(1, metrics.size());
+        assertEquals(3L, metrics.get(0)[1]);
+        assertEquals(6.0, (double) metrics.get(0)[2], 0.0001);
+        assertEquals(3.0, (double) metrics.get(0)[4], 0.0001);
+    }
+
+    @Test
+    public void testEvents() {
+        SpanTracker tracker = tracker(8);
+        tracker.setReporting(SpanTracker.Reporting.EVENTS);
+        SpanTracker.Span parent = tracker.start("load", 0);
+        SpanTracker.Span child = tracker.start("parse", parent.id);
+        clock.addAndGet(2_000_000);
+        tracker.report(tracker.end(child.id));
+
+        assertEquals(1, events.size());
+        assertEquals("parse", events.get(0).get("name"));
+        assertEquals(parent.id, events.get(0).get("parentSpanId"));
+        assertEquals(2.0, (double) events.get(0).get("durationMs"), 0.0001);
+        tracker.flush();
+        assertTrue(metrics.isEmpty());
+    }
+
+    @Test
+    public void testOpenSpanCap() {
+        SpanTracker tracker = tracker(4);
+        List<SpanTracker.Span> spans = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            spans.add(tracker.start("span", 0));
+        }
+
+        assertNull(tracker.start("span", 0));
+        assertEquals(1, tracker.getRejectedCount());
+
+        tracker.end(spans.get(0).id);
+        assertNotNull(tracker.start("span", 0));
+        assertEquals(4, tracker.openCount());
+    }
+
+    @Test
+    public void testLeakedSpansExpire() {
+        SpanTracker tracker = tracker(4);
+        for (int i = 0; i < 4; i++) {
+            // Never ended, as after a WebView reload
+            assertNotNull(tracker.start("leaked", 0));
+        }
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(5));
+        // Not open long enough to be evicted yet
+        assertNull(tracker.start("recent", 0));
+        assertEquals(1, tracker.getRejectedCount());
+
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(6));
+        SpanTracker.Span span = tracker.start("render", 0);
+        assertNotNull(span);
+        assertEquals(4, tracker.getExpiredCount());
+        assertEquals(1, tracker.openCount());
+        assertNotNull(tracker.end(span.id));
+    }
+
+    @Test
+    public void testExpiryKeepsRecentSpans() {
+        SpanTracker tracker = tracker(2);
+        SpanTracker.Span leaked = tracker.start("leaked", 0);
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(11));
+        SpanTracker.Span recent = tracker.start("recent", 0);
+
+        assertNotNull(tracker.start("render", 0));
+        assertEquals(1, tracker.getExpiredCount());
+        assertNull(tracker.end(leaked.id));
+        assertNotNull(tracker.end(recent.id));
+    }
+
+    @Test
+    public void testTombstonesReclaimed() {
+        SpanTracker tracker = tracker(4);
+        SpanTracker.Span open = tracker.start("open", 0);
+        for (int i = 0; i < 10_000; i++) {
+            SpanTracker.Span span = tracker.start("work", 0);
+            assertNotNull(tracker.end(span.id));
+            // The table has 16 slots
+            assertTrue(tracker.tombstoneCount() <= 4);
+        }
+
+        assertNotNull(tracker.end(open.id));
+        assertNull(tracker.end(12_345));
+    }
+
+    @Test
+    public void testNamesLimited() {
+        SpanTracker tracker = tracker(8);
+        for (int i = 0; i < 150; i++) {
+            SpanTracker.Span span = tracker.start("item-" + i, 0);
+            clock.addAndGet(1_000_000_000);
+            tracker.report(tracker.end(span.id));
+        }
+
+        tracker.flush();
+        assertEquals(101, metrics.size());
+        Object[] other = metrics.stream().filter(metric -> "Other".equals(metric[0])).findFirst().get();
+        assertEquals(50L, other[1]);
+        assertEquals(50.0, (double) other[2], 0.0001);
+    }
+
+    @Test
+    public void testMoveOpenSpans() {
+        SpanTracker previous = tracker(8);
+        SpanTracker.Span parent = previous.start("load", 0);
+        SpanTracker.Span child = previous.start("parse", parent.id);
+        clock.addAndGet(2_000_000_000L);
+        previous.report(previous.end(child.id));
+
+        SpanTracker tracker = tracker(16);
+        assertEquals(1, previous.moveOpenSpansTo(tracker));
+        assertEquals(0, previous.openCount());
+        assertEquals(1, tracker.openCount());
+
+        SpanTracker.Span started = tracker.start("render", 0);
+        assertTrue(started.id > parent.id);
+
+        clock.addAndGet(1_000_000_000L);
+        SpanTracker.Span ended = tracker.end(parent.id);
+        assertNotNull(ended);
+        assertEquals(3000, ended.durationMs(), 0.0001);
+        assertEquals(1000, ended.exclusiveDurationMs(), 0.0001);
+        assertNull(previous.end(parent.id));
+    }
+
+    @Test
+    public void testMoveOpenSpansPastCap() {
+        SpanTracker previous = tracker(4);
+        for (int i = 0; i < 3; i++) {
+            previous.start("span", 0);
+        }
+
+        SpanTracker tracker = tracker(2);
+        assertEquals(2, previous.moveOpenSpansTo(tracker));
+        assertEquals(1, tracker.getRejectedCount());
+        assertNull(tracker.start("span", 0));
+    }
+
+    @Test
+    public void testConcurrentStartAndEnd() throws Exception {
+        SpanTracker tracker = tracker(64);
+        int threads = 8;
+        int spansPerThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicLong ended = new AtomicLong();
+
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < spansPerThread; i++) {
+                    SpanTracker.Span span = tracker.start("work", 0);
+                    if (span != null && tracker.end(span.id) != null) {
+                        ended.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertEquals(threads * spansPerThread, ended.get());
+        assertEquals(0, tracker.openCount());
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.getcapacitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.newrelic.capacitor.plugin.StringDeduplicator;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class StringDeduplicatorUnitTest {
+
+    final Map<String, String> definitions = new LinkedHashMap<>();
+    String sessionId = "session-1";
+    final StringDeduplicator deduplicator = new StringDeduplicator(definitions::put, () -> sessionId);
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    private Map<String, Object> apply(String key, Object value) {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(key, value);
+        attributes.put("short", "kept");
+        deduplicator.apply(attributes);
+        assertEquals("kept", attributes.get("short"));
+        return attributes;
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        String stack = repeat('s', 1000);
+        apply("errorStack", stack);
+        assertEquals(stack, apply("errorStack", stack).get("errorStack"));
+        assertTrue(definitions.isEmpty());
+    }
+
+    @Test
+    public void testRepeatsReplacedByReference() {
+        deduplicator.setMinLength(256);
+        String stack = repeat('s', 1000);
+
+        // Values seen fewer than three times are sent as is
+        assertEquals(stack, apply("errorStack", stack).get("errorStack"));
+        assertEquals(stack, apply("errorStack", stack).get("errorStack"));
+        assertTrue(definitions.isEmpty());
+
+        Object reference = apply("errorStack", stack).get("errorStack");
+        assertNotEquals(stack, reference);
+        assertTrue(((String) reference).startsWith("nr-ref:"));
+        assertEquals(1, definitions.size());
+        assertEquals(stack, definitions.get(reference));
+
+        // The definition is only recorded once, under any attribute name
+        assertEquals(reference, apply("args", stack).get("args"));
+        assertEquals(1, definitions.size());
+        assertEquals(2, deduplicator.getReplacedCount());
+
+        assertEquals(repeat('s', 255), apply("args", repeat('s', 255)).get("args"));
+        assertEquals(12, apply("count", 12).get("count"));
+    }
+
+    @Test
+    public void testDefinedAgainInNewSession() {
+        deduplicator.setMinLength(256);
+        String stack = repeat('s', 1000);
+        apply("errorStack", stack);
+        apply("errorStack", stack);
+        Object reference = apply("errorStack", stack).get("errorStack");
+        assertEquals(1, definitions.size());
+
+        // References of the previous session cannot be resolved in the new one
+        sessionId = "session-2";
+        definitions.clear();
+        assertEquals(stack, apply("errorStack", stack).get("errorStack"));
+        assertEquals(stack, apply("errorStack", stack).get("errorStack"));
+        assertTrue(definitions.isEmpty());
+        assertEquals(reference, apply("errorStack", stack).get("errorStack"));
+        assertEquals(stack, definitions.get(reference));
+    }
+
+    @Test
+    public void testDictionaryIsBounded() {
+        deduplicator.setMinLength(10);
+        deduplicator.setMaxEntries(2);
+        String first = repeat('a', 20);
+        apply("value", first);
+        apply("value", first);
+        apply("value", first);
+        apply("value", repeat('b', 20));
+        apply("value", repeat('c', 20));
+        assertEquals(2, deduplicator.size());
+
+        // Evicted, so sent as is and defined again when it repeats
+        definitions.clear();
+        assertEquals(first, apply("value", first).get("value"));
+        assertEquals(first, apply("value", first).get("value"));
+        assertTrue(definitions.isEmpty());
+        apply("value", first);
+        assertEquals(1, definitions.size());
+    }
+}
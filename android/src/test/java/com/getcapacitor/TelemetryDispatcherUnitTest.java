@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.getcapacitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.newrelic.capacitor.plugin.TelemetryDispatcher;
+import com.newrelic.capacitor.plugin.TelemetryDispatcher.Priority;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TelemetryDispatcherUnitTest {
+
+    final TelemetryDispatcher dispatcher = new TelemetryDispatcher();
+
+    private CountDownLatch blockWorker() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        dispatcher.dispatch(Priority.BULK, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    @Test
+    public void testErrorsBypassBulkTraffic() throws InterruptedException {
+        CountDownLatch release = blockWorker();
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1001);
+
+        for (int i = 0; i < 1000; i++) {
+            dispatcher.dispatch(Priority.BULK, () -> {
+                order.add("bulk");
+                done.countDown();
+            });
+        }
+        dispatcher.dispatch(Priority.CRITICAL, () -> {
+            order.add("error");
+            done.countDown();
+        });
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(order.indexOf("error") < 2);
+    }
+
+    @Test
+    public void testFullLaneDropsTelemetry() throws InterruptedException {
+        CountDownLatch release = blockWorker();
+
+        boolean accepted = true;
+        for (int i = 0; i <= 2048 && accepted; i++) {
+            accepted = dispatcher.dispatch(Priority.BULK, () -> {});
+        }
+        assertFalse(accepted);
+
+        // Critical work is never dropped
+        boolean[] ran = new boolean[1];
+        for (int i = 0; i <= 256; i++) {
+            assertTrue(dispatcher.dispatch(Priority.CRITICAL, () -> ran[0] = true));
+        }
+        assertTrue(ran[0]);
+
+        release.countDown();
+    }
+
+    @Test
+    public void testDispatchOrRun() throws InterruptedException {
+        CountDownLatch release = blockWorker();
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        dispatcher.dispatchOrRun(Priority.EVENT, () -> order.add("setAttribute"));
+        dispatcher.dispatch(Priority.EVENT, () -> order.add("event"));
+        assertTrue(order.isEmpty());
+        dispatcher.flush();
+        assertEquals("setAttribute", order.get(0));
+        assertEquals("event", order.get(1));
+
+        // A full lane runs it on the calling thread instead of dropping it
+        for (int i = 0; i < 2048; i++) {
+            assertTrue(dispatcher.dispatch(Priority.EVENT, () -> {}));
+        }
+        dispatcher.dispatchOrRun(Priority.EVENT, () -> order.add("removeAttribute"));
+        assertEquals("removeAttribute", order.get(2));
+
+        release.countDown();
+    }
+
+    @Test
+    public void testFlush() throws InterruptedException {
+        CountDownLatch release = blockWorker();
+        int[] count = new int[1];
+        for (int i = 0; i < 10; i++) {
+            dispatcher.dispatch(Priority.EVENT, () -> count[0]++);
+        }
+
+        dispatcher.flush();
+
+        assertEquals(10, count[0]);
+        assertEquals(0, dispatcher.pendingCount());
+        release.countDown();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.getcapacitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.newrelic.capacitor.plugin.TelemetryReplay;
+import com.newrelic.capacitor.plugin.TelemetryTap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TelemetryTapUnitTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRecordAndRead() throws Exception {
+        File dir = folder.newFolder();
+        TelemetryTap tap = new TelemetryTap(dir);
+        tap.record("recordCustomEvent", "{\"eventType\":\"Purchase\"}", 1000);
+        tap.record("removeAllAttributes", "", 1010);
+        tap.close();
+
+        List<TelemetryTap.Record> records = TelemetryTap.read(dir);
+        assertEquals(2, records.size());
+        assertEquals("recordCustomEvent", records.get(0).method);
+        assertEquals("{\"eventType\":\"Purchase\"}", records.get(0).arguments);
+        assertEquals(1000, records.get(0).timestamp);
+        assertEquals("removeAllAttributes", records.get(1).method);
+        assertEquals("", records.get(1).arguments);
+    }
+
+    @Test
+    public void testRotationKeepsNewestRecords() throws Exception {
+        File dir = folder.newFolder();
+        TelemetryTap tap = new TelemetryTap(dir, 256, 3);
+        for (int i = 0; i < 100; i++) {
+            tap.record("recordMetric", "{\"value\":" + i + "}", i);
+        }
+        tap.close();
+
+        assertEquals(3, dir.listFiles().length);
+        List<TelemetryTap.Record> records = TelemetryTap.read(dir);
+        assertFalse(records.isEmpty());
+        assertTrue(records.size() < 100);
+        for (int i = 1; i < records.size(); i++) {
+            assertEquals(records.get(i - 1).timestamp + 1, records.get(i).timestamp);
+        }
+        assertEquals(99, records.get(records.size() - 1).timestamp);
+    }
+
+    @Test
+    public void testReopenContinuesAfterLatestSegment() throws Exception {
+        File dir = folder.newFolder();
+        TelemetryTap tap = new TelemetryTap(dir, 256, 4);
+        tap.record("setUserId", "{\"userId\":\"first\"}", 1);
+        tap.close();
+
+        tap = new TelemetryTap(dir, 256, 4);
+        tap.record("setUserId", "{\"userId\":\"second\"}", 2);
+        tap.close();
+
+        List<TelemetryTap.Record> records = TelemetryTap.read(dir);
+        assertEquals(2, records.size());
+        assertEquals(1, records.get(0).timestamp);
+        assertEquals(2, records.get(1).timestamp);
+    }
+
+    @Test
+    public void testOversizedRecordDropped() throws Exception {
+        File dir = folder.newFolder();
+        TelemetryTap tap = new TelemetryTap(dir, 128, 2);
+        tap.record("recordError", new String(new char[200]).replace('\0', 'x'), 1);
+        tap.close();
+
+        assertEquals(1, tap.getDroppedCount());
+        assertTrue(TelemetryTap.read(dir).isEmpty());
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        List<TelemetryTap.Record> records = new ArrayList<>();
+        records.add(new TelemetryTap.Record(1000, "recordMetric", "{\"name\":\"a\",\"sentAt\":1000}"));
+        records.add(new TelemetryTap.Record(1200, "recordMetric", "{\"name\":\"b\"}"));
+        records.add(new TelemetryTap.Record(1400, "crashNow", ""));
+
+        List<String> names = new ArrayList<>();
+        TelemetryReplay.Result result = new TelemetryReplay(records).run(2, (method, arguments) -> {
+            assertFalse(arguments.has("sentAt"));
+            if (!"recordMetric".equals(method)) {
+                return false;
+            }
+            names.add(arguments.getString("name"));
+            return true;
+        });
+
+        assertEquals(3, result.calls);
+        assertEquals(1, result.failed);
+        assertEquals(2, names.size());
+        assertEquals("a", names.get(0));
+        // 400ms of traffic at twice the original speed
+        assertTrue(result.durationMs >= 200);
+    }
+
+    @Test
+    public void testReplayAsFastAsPossible() throws Exception {
+        List<TelemetryTap.Record> records = new ArrayList<>();
+        records.add(new TelemetryTap.Record(0, "recordMetric", "{}"));
+        records.add(new TelemetryTap.Record(60000, "recordMetric", "{}"));
+
+        TelemetryReplay.Result result = new TelemetryReplay(records).run(0, (method, arguments) -> true);
+
+        assertEquals(2, result.calls);
+        assertEquals(0, result.failed);
+        assertTrue(result.durationMs < 60000);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.getcapacitor;
+
+import static org.junit.Assert.assertEquals;
+
+import com.newrelic.capacitor.plugin.UrlNormalizer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class UrlNormalizerUnitTest {
+
+    final UrlNormalizer normalizer = new UrlNormalizer();
+
+    @Before
+    public void setUp() {
+        normalizer.setEnabled(true);
+    }
+
+    @Test
+    public void testDisabled() {
+        normalizer.setEnabled(false);
+        assertEquals("https://api.example.com/users/42?x=1", normalizer.normalize("https://api.example.com/users/42?x=1"));
+    }
+
+    @Test
+    public void testReplaceIdsAndStripQuery() {
+        assertEquals("https://api.example.com/users/{id}/orders/{uuid}",
+                normalizer.normalize("https://api.example.com/users/42/orders/3f2b6c1e-9a4d-4e2b-8f1a-0c9d8e7f6a5b?page=2#top"));
+        assertEquals("https://api.example.com/blobs/{hash}",
+                normalizer.normalize("https://api.example.com/blobs/0123456789abcdef0123"));
+        assertEquals("https://api.example.com", normalizer.normalize("https://api.example.com?x=1"));
+
+        normalizer.setStripQuery(false);
+        assertEquals("https://api.example.com/users/{id}?page=2", normalizer.normalize("https://api.example.com/users/7?page=2"));
+    }
+
+    @Test
+    public void testHostRules() {
+        normalizer.addRule("cdn.example.com", "^/img/[^/]+\\.png$", "/img/{image}.png");
+
+        assertEquals("https://cdn.example.com/img/{image}.png", normalizer.normalize("https://cdn.example.com/img/cat.png"));
+        assertEquals("https://api.example.com/img/cat.png", normalizer.normalize("https://api.example.com/img/cat.png"));
+    }
+
+    @Test
+    public void testCardinalityLimit() {
+        normalizer.setMaxPathsPerHost(2);
+
+        assertEquals("https://api.example.com/a", normalizer.normalize("https://api.example.com/a"));
+        assertEquals("https://api.example.com/b", normalizer.normalize("https://api.example.com/b"));
+        assertEquals("https://api.example.com/other", normalizer.normalize("https://api.example.com/c"));
+        assertEquals("https://api.example.com/a", normalizer.normalize("https://api.example.com/a?again"));
+        assertEquals("https://other.example.com/c", normalizer.normalize("https://other.example.com/c"));
+    }
+}
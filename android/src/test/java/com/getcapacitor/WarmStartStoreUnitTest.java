@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2022-present New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.getcapacitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.SharedPreferences;
+
+import com.newrelic.capacitor.plugin.WarmStartStore;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class WarmStartStoreUnitTest {
+
+    final SharedPreferences preferences = mock(SharedPreferences.class);
+    final SharedPreferences.Editor editor = mock(SharedPreferences.Editor.class);
+    final WarmStartStore store = new WarmStartStore(preferences);
+
+    @Before
+    public void setUp() {
+        when(preferences.edit()).thenReturn(editor);
+        when(editor.putString(Mockito.anyString(), Mockito.any())).thenReturn(editor);
+        when(editor.clear()).thenReturn(editor);
+    }
+
+    private void stored(String appKey, String agentConfiguration) {
+        when(preferences.getString("appKey", null)).thenReturn(appKey);
+        when(preferences.getString("agentConfiguration", null)).thenReturn(agentConfiguration);
+    }
+
+    @Test
+    public void testEmpty() {
+        assertNull(store.getAppKey());
+        assertNull(store.getAgentConfiguration());
+        assertFalse(store.matches("key", null));
+
+        store.clear();
+        verify(preferences, never()).edit();
+    }
+
+    @Test
+    public void testSave() {
+        store.save("key", "{\"logLevel\":\"INFO\"}");
+
+        verify(editor, times(1)).putString("appKey", "key");
+        verify(editor, times(1)).putString("agentConfiguration", "{\"logLevel\":\"INFO\"}");
+        verify(editor, times(1)).apply();
+    }
+
+    @Test
+    public void testSaveUnchangedConfigurationSkipsWrite() {
+        stored("key", "{\"logLevel\":\"INFO\"}");
+
+        assertTrue(store.matches("key", "{\"logLevel\":\"INFO\"}"));
+        store.save("key", "{\"logLevel\":\"INFO\"}");
+        verify(preferences, never()).edit();
+    }
+
+    @Test
+    public void testMatches() {
+        stored("key", null);
+
+        assertTrue(store.matches("key", null));
+        assertFalse(store.matches("key", "{}"));
+        assertFalse(store.matches("otherKey", null));
+        assertEquals("key", store.getAppKey());
+    }
+
+    @Test
+    public void testClear() {
+        stored("key", "{}");
+
+        store.clear();
+        verify(editor, times(1)).clear();
+        verify(editor, times(1)).apply();
+    }
+}
@@ -17,11 +17,14 @@ CAP_PLUGIN(NewRelicCapacitorPluginPlugin, "NewRelicCapacitorPlugin",
            CAP_PLUGIN_METHOD(recordCustomEvent, CAPPluginReturnNone);
            CAP_PLUGIN_METHOD(startInteraction, CAPPluginReturnPromise);
            CAP_PLUGIN_METHOD(endInteraction, CAPPluginReturnNone);
+           CAP_PLUGIN_METHOD(startSpan, CAPPluginReturnPromise);
+           CAP_PLUGIN_METHOD(endSpan, CAPPluginReturnPromise);
            CAP_PLUGIN_METHOD(crashNow, CAPPluginReturnNone);
            CAP_PLUGIN_METHOD(currentSessionId, CAPPluginReturnPromise);
            CAP_PLUGIN_METHOD(incrementAttribute, CAPPluginReturnNone);
            CAP_PLUGIN_METHOD(noticeHttpTransaction, CAPPluginReturnNone);
            CAP_PLUGIN_METHOD(recordMetric, CAPPluginReturnNone);
+           CAP_PLUGIN_METHOD(recordDistribution, CAPPluginReturnNone);
            CAP_PLUGIN_METHOD(removeAllAttributes, CAPPluginReturnNone);
            CAP_PLUGIN_METHOD(setMaxEventBufferTime, CAPPluginReturnNone);
            CAP_PLUGIN_METHOD(setMaxEventPoolSize, CAPPluginReturnNone);
@@ -31,4 +34,6 @@ CAP_PLUGIN(NewRelicCapacitorPluginPlugin, "NewRelicCapacitorPlugin",
            CAP_PLUGIN_METHOD(networkErrorRequestEnabled, CAPPluginReturnNone);
            CAP_PLUGIN_METHOD(httpResponseBodyCaptureEnabled, CAPPluginReturnNone);
            CAP_PLUGIN_METHOD(getAgentConfiguration, CAPPluginReturnPromise);
+           CAP_PLUGIN_METHOD(ping, CAPPluginReturnPromise);
+           CAP_PLUGIN_METHOD(replayTelemetryTap, CAPPluginReturnPromise);
 )
@@ -213,6 +213,16 @@ public class NewRelicCapacitorPluginPlugin: CAPPlugin {
         ])
     }
     
+    @objc func startSpan(_ call: CAPPluginCall) {
+        // Spans are currently only an android feature
+        call.resolve(["spanId": 0])
+    }
+    
+    @objc func endSpan(_ call: CAPPluginCall) {
+        // Spans are currently only an android feature
+        call.resolve(["durationMs": 0])
+    }
+    
     @objc func endInteraction(_ call: CAPPluginCall) {
         guard let interactionId = call.getString("interactionId") else {
             call.reject("Nil interactionId given to endInteraction")
@@ -337,6 +347,11 @@ public class NewRelicCapacitorPluginPlugin: CAPPlugin {
         
     }
     
+    @objc func recordDistribution(_ call: CAPPluginCall) {
+        // Distributions are currently only an android feature
+        call.resolve()
+    }
+    
     @objc func removeAllAttributes(_ call: CAPPluginCall) {
         NewRelic.removeAllAttributes()
         call.resolve()
@@ -454,4 +469,14 @@ public class NewRelicCapacitorPluginPlugin: CAPPlugin {
         ])
     }
     
+    @objc func ping(_ call: CAPPluginCall) {
+        // Bridge latency probe is currently only an android feature, do not schedule pings
+        call.resolve(["nextPingInMs": 0])
+    }
+    
+    @objc func replayTelemetryTap(_ call: CAPPluginCall) {
+        // Telemetry tap is currently only an android feature, there is nothing to replay
+        call.resolve(["calls": 0, "failed": 0, "durationMs": 0, "callsPerSecond": 0])
+    }
+    
 }
@@ -8,10 +8,12 @@ export interface NewRelicCapacitorPluginPlugin {
   setUserId(options: { userId: string }): void;
   setAttribute(options:{name: string, value: string}): void;
   removeAttribute(options:{name: string}): void;
-  recordBreadcrumb(options:{name: string, eventAttributes: object}): void;
-  recordCustomEvent(options:{eventType: string, eventName: string, attributes: object}): void;
+  recordBreadcrumb(options:{name: string, eventAttributes: object, sentAt?: number}): void;
+  recordCustomEvent(options:{eventType: string, eventName: string, attributes: object, idempotencyKey?: string, sentAt?: number}): void;
   startInteraction(options:{value: string}): Promise<{ value: string }>;
   endInteraction(options:{interactionId: string}): void;
+  startSpan(options: {name: string, parentSpanId?: number}): Promise<{ spanId: number }>;
+  endSpan(options: {spanId: number}): Promise<{ durationMs: number }>;
   crashNow(options?: {message: string}): void;
   currentSessionId(options?: {}): Promise<{sessionId: string}>;
   incrementAttribute(options: {name: string, value?: number}): void;
@@ -23,7 +25,9 @@ export interface NewRelicCapacitorPluginPlugin {
     endTime: number, 
     bytesSent: number, 
     bytesReceived: number, 
-    body: string
+    body: string,
+    idempotencyKey?: string,
+    sentAt?: number
   }): void;
   recordMetric(options: {
     name: string,
@@ -31,6 +35,14 @@ export interface NewRelicCapacitorPluginPlugin {
     value?: number, 
     countUnit?: string,
     valueUnit?: string,
+    sentAt?: number
+  }): void;
+  recordDistribution(options: {
+    name: string,
+    category: string,
+    value: number,
+    valueUnit?: string,
+    sentAt?: number
   }): void;
   removeAllAttributes(options?: {}): void;
   setMaxEventBufferTime(options: {maxBufferTimeInSeconds: number}): void;
@@ -40,12 +52,15 @@ export interface NewRelicCapacitorPluginPlugin {
     message: string;
     stack: string;
     isFatal: boolean;
+    sentAt?: number;
   }): void;
   analyticsEventEnabled(options: {enabled: boolean}): void;
   networkRequestEnabled(options: {enabled: boolean}): void;
   networkErrorRequestEnabled(options: {enabled: boolean}): void;
   httpResponseBodyCaptureEnabled(options: {enabled: boolean}): void;
   getAgentConfiguration(options?: {}) : Promise<AgentConfiguration>;
+  ping(options?: {sentAt?: number}): Promise<{nextPingInMs: number}>;
+  replayTelemetryTap(options?: {speed?: number}): Promise<TelemetryReplayResult>;
 }
 
 export interface AgentConfiguration {
@@ -55,12 +70,71 @@ export interface AgentConfiguration {
   networkRequestEnabled?: boolean
   networkErrorRequestEnabled?: boolean
   httpResponseBodyCaptureEnabled?: boolean
+  httpResponseBodyCaptureMaxBytes?: number
+  httpResponseBodyCaptureErrorsOnly?: boolean
+  httpResponseBodyCaptureHashEnabled?: boolean
   webViewInstrumentation?: boolean
   loggingEnabled?: boolean
   logLevel?: string
   collectorAddress?: string
   crashCollectorAddress?: string
   sendConsoleEvents?: boolean
+  sourceMapSymbolicationEnabled?: boolean
+  bridgeLatencyProbeEnabled?: boolean
+  telemetryTapEnabled?: boolean
+  breadcrumbBufferSize?: number
+  breadcrumbBufferCompact?: boolean
+  maxOpenSpans?: number
+  spanReporting?: string
+  warmStartEnabled?: boolean
+  frameMonitorEnabled?: boolean
+  memorySamplerEnabled?: boolean
+  distributionReporting?: string
+  stringDedupMinLength?: number
+  stringDedupMaxEntries?: number
+  urlNormalization?: UrlNormalizationConfiguration
+  eventRollups?: EventRollupConfiguration[]
+  attributeProjections?: AttributeProjectionConfiguration[]
+  backgroundThrottling?: BackgroundThrottlingConfiguration
+}
+
+export interface TelemetryReplayResult {
+  calls: number
+  failed: number
+  durationMs: number
+  callsPerSecond: number
+}
+
+export interface EventRollupConfiguration {
+  eventType: string
+  dimensions: string[]
+  windowSeconds?: number
+}
+
+export interface AttributeProjectionConfiguration {
+  eventType: string
+  allow?: string[]
+  deny?: string[]
+  rename?: { [key: string]: string }
+}
+
+export interface BackgroundThrottlingConfiguration {
+  enabled?: boolean
+  ratesPerMinute?: {
+    console?: number
+    event?: number
+    breadcrumb?: number
+    metric?: number
+    network?: number
+  }
+}
+
+export interface UrlNormalizationConfiguration {
+  enabled?: boolean
+  stripQuery?: boolean
+  replaceIds?: boolean
+  maxPathsPerHost?: number
+  rules?: { host?: string, pattern: string, replacement: string }[]
 }
 
 export namespace NREnums {
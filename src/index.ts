@@ -61,6 +61,7 @@ function sendConsole(consoleType: string, _arguments: any) {
         eventType: 'consoleEvents',
         eventName: 'JSConsole',
         attributes: { consoleType: consoleType, args: argsStr },
+        sentAt: Date.now(),
       });
     }
   });
@@ -72,6 +73,7 @@ window.addEventListener('error', event => {
     message: event.error.message,
     stack: event.error.stack,
     isFatal: true,
+    sentAt: Date.now(),
   });
 });
 
@@ -82,6 +84,7 @@ window.addEventListener('unhandledrejection', e => {
     message: err.message,
     stack: 'no stack',
     isFatal: false,
+    sentAt: Date.now(),
   });
 
 });
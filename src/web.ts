@@ -1,5 +1,5 @@
 import { WebPlugin } from '@capacitor/core';
-import { NewRelicCapacitorPluginPlugin, AgentConfiguration } from './definitions';
+import { NewRelicCapacitorPluginPlugin, AgentConfiguration, TelemetryReplayResult } from './definitions';
 
 export class NewRelicCapacitorPluginWeb extends WebPlugin implements NewRelicCapacitorPluginPlugin {
     start(_options: { appKey: string; agentConfiguration?: AgentConfiguration | undefined; }): void {
@@ -17,7 +17,7 @@ export class NewRelicCapacitorPluginWeb extends WebPlugin implements NewRelicCap
     recordBreadcrumb(_options: { name: string; eventAttributes: object; }): void {
        //  throw new Error('Method not implemented.');
     }
-    recordCustomEvent(_options: { eventType: string; eventName: string; attributes: object; }): void {
+    recordCustomEvent(_options: { eventType: string; eventName: string; attributes: object; idempotencyKey?: string | undefined; }): void {
        // throw new Error('Method not implemented.');
     }
     startInteraction(_options: { value: string; }): Promise<{ value: string; }> {
@@ -25,6 +25,16 @@ export class NewRelicCapacitorPluginWeb extends WebPlugin implements NewRelicCap
             resolve({value:''});
         })
     }
+    startSpan(_options: { name: string; parentSpanId?: number; }): Promise<{ spanId: number; }> {
+        return new Promise((resolve) => {
+            resolve({spanId: 0});
+        })
+    }
+    endSpan(_options: { spanId: number; }): Promise<{ durationMs: number; }> {
+        return new Promise((resolve) => {
+            resolve({durationMs: 0});
+        })
+    }
     endInteraction(_options: { interactionId: string; }): void {
        // throw new Error('Method not implemented.');
     }
@@ -40,12 +50,15 @@ export class NewRelicCapacitorPluginWeb extends WebPlugin implements NewRelicCap
     incrementAttribute(_options: { name: string; value?: number | undefined; }): void {
        // throw new Error('Method not implemented.');
     }
-    noticeHttpTransaction(_options: { url: string; method: string; status: number; startTime: number; endTime: number; bytesSent: number; bytesReceived: number; body: string; }): void {
+    noticeHttpTransaction(_options: { url: string; method: string; status: number; startTime: number; endTime: number; bytesSent: number; bytesReceived: number; body: string; idempotencyKey?: string | undefined; }): void {
         // throw new Error('Method not implemented.');
     }
     recordMetric(_options: { name: string; category: string; value?: number | undefined; countUnit?: string | undefined; valueUnit?: string | undefined; }): void {
         // throw new Error('Method not implemented.');
     }
+    recordDistribution(_options: { name: string; category: string; value: number; valueUnit?: string | undefined; }): void {
+        // throw new Error('Method not implemented.');
+    }
     removeAllAttributes(_options?: {} | undefined): void {
         // throw new Error('Method not implemented.');
     }
@@ -78,17 +91,43 @@ export class NewRelicCapacitorPluginWeb extends WebPlugin implements NewRelicCap
             networkRequestEnabled: true,
             networkErrorRequestEnabled: true,
             httpResponseBodyCaptureEnabled: true,
+            httpResponseBodyCaptureMaxBytes: 4096,
+            httpResponseBodyCaptureErrorsOnly: true,
+            httpResponseBodyCaptureHashEnabled: false,
             webViewInstrumentation: true,
             loggingEnabled: true,
             logLevel: '',
             collectorAddress: '',
             crashCollectorAddress: '',
-            sendConsoleEvents: true
+            sendConsoleEvents: true,
+            sourceMapSymbolicationEnabled: false,
+            bridgeLatencyProbeEnabled: false,
+            telemetryTapEnabled: false,
+            breadcrumbBufferSize: 0,
+            breadcrumbBufferCompact: false,
+            maxOpenSpans: 256,
+            spanReporting: 'METRICS',
+            warmStartEnabled: false,
+            frameMonitorEnabled: false,
+            memorySamplerEnabled: false,
+            distributionReporting: 'METRICS',
+            stringDedupMinLength: 0,
+            stringDedupMaxEntries: 512
         };
        return new Promise((resolve) => {
             resolve(a);
         })
     }
+    ping(_options?: { sentAt?: number } | undefined): Promise<{ nextPingInMs: number; }> {
+        return new Promise((resolve) => {
+            resolve({nextPingInMs: 0});
+        })
+    }
+    replayTelemetryTap(_options?: { speed?: number } | undefined): Promise<TelemetryReplayResult> {
+        return new Promise((resolve) => {
+            resolve({calls: 0, failed: 0, durationMs: 0, callsPerSecond: 0});
+        })
+    }
 
 
 }